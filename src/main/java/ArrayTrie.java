@@ -0,0 +1,378 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compact DLB trie stored as a structure of arrays.
+ * Node {@code i} is described by {@code token[i]}, {@code code[i]},
+ * {@code child[i]} and {@code sibling[i]}, with {@link #NONE} for a missing
+ * link. Node {@link #ROOT} is a sentinel whose child chain is the top level.
+ * The arrays live in IntBuffers, either on the heap or in direct (off-heap)
+ * memory. They grow by doubling, so nodes cost no objects or headers, and
+ * neither lookups nor compression allocate per node.
+ * <p>
+ * A lookup that walks past {@link IntDLBNode#INDEX_THRESHOLD} siblings gives
+ * that node an open-addressed table over its children, as IntDLBNode does, so
+ * wide levels such as the top one stay constant time. The tables live on the
+ * heap and are rebuilt on demand; snapshots hold only the four arrays.
+ * <p>
+ * Compression follows the same LZW rules as {@link CommandCodebook}, so both
+ * emit the same codes for the same starting trie.
+ */
+public class ArrayTrie {
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private final TokenInterner interner;
+    private final boolean direct;
+    private IntBuffer tokens;
+    private IntBuffer codes;
+    private IntBuffer children;
+    private IntBuffer siblings;
+    private int size; // nodes in use, sentinel included
+    private int nextCode;
+    private ChildIndex[] indexes = new ChildIndex[0]; // node -> table over its children, or null
+
+    /**
+     * Create an empty trie.
+     *
+     * @param initialCapacity number of nodes to reserve
+     * @param direct          true to keep the arrays in direct (off-heap) buffers
+     */
+    public ArrayTrie(int initialCapacity, boolean direct) {
+        this.interner = new TokenInterner();
+        this.direct = direct;
+        int capacity = Math.max(2, initialCapacity);
+        tokens = allocate(capacity);
+        codes = allocate(capacity);
+        children = allocate(capacity);
+        siblings = allocate(capacity);
+        newNode(-1, -1);
+    }
+
+    /**
+     * Wrap existing arrays, e.g. views of a loaded snapshot. Read-only buffers
+     * are copied on the first change.
+     */
+    ArrayTrie(TokenInterner interner, IntBuffer tokens, IntBuffer codes, IntBuffer children,
+              IntBuffer siblings, int size, int nextCode) {
+        this.interner = interner;
+        this.direct = tokens.isDirect();
+        this.tokens = tokens;
+        this.codes = codes;
+        this.children = children;
+        this.siblings = siblings;
+        this.size = size;
+        this.nextCode = nextCode;
+    }
+
+    /**
+     * Copy a DLBNode trie. Siblings keep their order and are laid out next to
+     * each other.
+     *
+     * @param root   first node of the top-level sibling chain (may be null)
+     * @param direct true to keep the arrays in direct (off-heap) buffers
+     * @return the array-backed copy
+     */
+    public static ArrayTrie fromDLB(DLBNode root, boolean direct) {
+        ArrayTrie trie = new ArrayTrie(64, direct);
+        int maxCode = -1;
+
+        // each entry: the head of a sibling chain and the array node owning it
+        Deque<Object[]> queue = new ArrayDeque<>();
+        if (root != null) queue.add(new Object[] { root, ROOT });
+        while (!queue.isEmpty()) {
+            Object[] entry = queue.poll();
+            int parent = (Integer) entry[1];
+            int prev = NONE;
+            for (DLBNode node = (DLBNode) entry[0]; node != null; node = node.sibling) {
+                int id = trie.newNode(trie.interner.intern(node.token), node.code);
+                if (prev == NONE) trie.children.put(parent, id);
+                else trie.siblings.put(prev, id);
+                prev = id;
+                maxCode = Math.max(maxCode, node.code);
+                if (node.child != null) queue.add(new Object[] { node.child, id });
+            }
+        }
+        trie.nextCode = maxCode + 1;
+        return trie;
+    }
+
+    /**
+     * Rebuild the equivalent DLBNode trie.
+     *
+     * @return first node of the top-level sibling chain, or null if empty
+     */
+    public DLBNode toDLB() {
+        DLBNode[] nodes = new DLBNode[size];
+        for (int i = 1; i < size; i++) {
+            nodes[i] = new DLBNode(interner.token(tokens.get(i)));
+            nodes[i].code = codes.get(i);
+        }
+        for (int i = 1; i < size; i++) {
+            int c = children.get(i);
+            int s = siblings.get(i);
+            if (c != NONE) nodes[i].child = nodes[c];
+            if (s != NONE) nodes[i].sibling = nodes[s];
+        }
+        int top = children.get(ROOT);
+        return top == NONE ? null : nodes[top];
+    }
+
+    /**
+     * @return the interner owning this trie's token ids
+     */
+    public TokenInterner interner() {
+        return interner;
+    }
+
+    /**
+     * @return number of nodes, not counting the sentinel root
+     */
+    public int nodeCount() {
+        return size - 1;
+    }
+
+    /**
+     * @return the code the next added pattern will receive
+     */
+    public int nextCode() {
+        return nextCode;
+    }
+
+    /**
+     * @return true if the arrays live in direct (off-heap) memory
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * @return the underlying arrays in order: tokens, codes, children, siblings
+     */
+    IntBuffer[] buffers() {
+        return new IntBuffer[] { tokens, codes, children, siblings };
+    }
+
+    // raw field access for callers walking the trie directly
+
+    public int token(int node) {
+        return tokens.get(node);
+    }
+
+    public int code(int node) {
+        return codes.get(node);
+    }
+
+    public int child(int node) {
+        return children.get(node);
+    }
+
+    public int sibling(int node) {
+        return siblings.get(node);
+    }
+
+    /**
+     * Find the child of a node holding the given token id.
+     *
+     * @param node  parent node
+     * @param token interned token id
+     * @return the child node, or {@link #NONE}
+     */
+    public int findChild(int node, int token) {
+        ChildIndex index = node < indexes.length ? indexes[node] : null;
+        if (index != null) return index.find(token);
+
+        int scanned = 0;
+        for (int curr = children.get(node); curr != NONE; curr = siblings.get(curr)) {
+            if (tokens.get(curr) == token) {
+                if (scanned >= IntDLBNode.INDEX_THRESHOLD) buildIndex(node);
+                return curr;
+            }
+            scanned++;
+        }
+        if (scanned > IntDLBNode.INDEX_THRESHOLD) buildIndex(node);
+        return NONE;
+    }
+
+    /**
+     * Prepend a new child to a node.
+     *
+     * @param node  parent node
+     * @param token interned token id
+     * @param code  code of the new pattern, or -1
+     * @return the new node
+     */
+    public int addChild(int node, int token, int code) {
+        ensureWritable();
+        int id = newNode(token, code);
+        siblings.put(id, children.get(node));
+        children.put(node, id);
+        if (code >= nextCode) nextCode = code + 1;
+        if (node < indexes.length && indexes[node] != null) indexes[node].add(id);
+        return id;
+    }
+
+    /**
+     * Look up the code of a whole pattern.
+     *
+     * @param pattern command tokens
+     * @return the pattern's code, or -1 if it is not in the trie
+     */
+    public int lookup(List<String> pattern) {
+        int node = ROOT;
+        for (String token : pattern) {
+            int id = interner.idOf(token);
+            node = id == -1 ? NONE : findChild(node, id);
+            if (node == NONE) return -1;
+        }
+        return node == ROOT ? -1 : codes.get(node);
+    }
+
+    /**
+     * LZW-compress a batch of command sequences, growing this trie in place.
+     *
+     * @param sequences list of command sequences, each a list of string tokens
+     * @param sink      receiver for emitted codes and sequence ends
+     */
+    public void compress(List<List<String>> sequences, CodeSink sink) {
+        for (List<String> sequence : sequences) {
+            int match = NONE;
+            for (String token : sequence) {
+                int id = interner.idOf(token);
+
+                // extend the current match if the longer pattern is already known
+                int next = match == NONE || id == -1 ? NONE : findChild(match, id);
+                if (next != NONE && codes.get(next) != -1) {
+                    match = next;
+                    continue;
+                }
+
+                int primitive = id == -1 ? NONE : findChild(ROOT, id);
+                if (primitive == NONE || codes.get(primitive) == -1) {
+                    throw new IllegalArgumentException("unknown command token: " + token);
+                }
+                if (match != NONE) {
+                    sink.code(codes.get(match));
+                    if (next == NONE) {
+                        addChild(match, id, nextCode);
+                    } else {
+                        // pattern was preloaded without a code of its own
+                        ensureWritable();
+                        codes.put(next, nextCode++);
+                    }
+                }
+                match = primitive;
+            }
+            if (match != NONE) sink.code(codes.get(match));
+            sink.endSequence();
+        }
+    }
+
+    /**
+     * LZW-compress a batch of command sequences into a list of codes.
+     *
+     * @param sequences list of command sequences, each a list of string tokens
+     * @return the emitted codes for all sequences in order
+     */
+    public List<Integer> compress(List<List<String>> sequences) {
+        List<Integer> compressed = new ArrayList<>();
+        compress(sequences, compressed::add);
+        return compressed;
+    }
+
+    private int newNode(int token, int code) {
+        if (size == tokens.capacity()) grow();
+        int id = size++;
+        tokens.put(id, token);
+        codes.put(id, code);
+        children.put(id, NONE);
+        siblings.put(id, NONE);
+        return id;
+    }
+
+    private void buildIndex(int node) {
+        if (node >= indexes.length) indexes = Arrays.copyOf(indexes, Math.max(node + 1, size));
+        int count = 0;
+        for (int curr = children.get(node); curr != NONE; curr = siblings.get(curr)) count++;
+        ChildIndex index = new ChildIndex(Integer.highestOneBit(count) * 4);
+        for (int curr = children.get(node); curr != NONE; curr = siblings.get(curr)) index.add(curr);
+        indexes[node] = index;
+    }
+
+    private void ensureWritable() {
+        if (tokens.isReadOnly()) grow();
+    }
+
+    private void grow() {
+        int capacity = Math.max(2, tokens.capacity() * 2);
+        tokens = copy(tokens, capacity);
+        codes = copy(codes, capacity);
+        children = copy(children, capacity);
+        siblings = copy(siblings, capacity);
+    }
+
+    private IntBuffer copy(IntBuffer from, int capacity) {
+        IntBuffer to = allocate(capacity);
+        IntBuffer used = from.duplicate();
+        used.position(0).limit(size);
+        to.put(used);
+        to.clear();
+        return to;
+    }
+
+    private IntBuffer allocate(int capacity) {
+        if (!direct) return IntBuffer.allocate(capacity);
+        return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Linear-probing table of child node ids keyed on their token. Nodes are
+     * never removed from an ArrayTrie, so there is no deletion.
+     */
+    private final class ChildIndex {
+        private int[] slots; // child node ids, 0 for empty since the root is nobody's child
+        private int count;
+
+        ChildIndex(int capacity) {
+            slots = new int[capacity];
+        }
+
+        int find(int token) {
+            int mask = slots.length - 1;
+            for (int slot = hash(token) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                if (tokens.get(slots[slot]) == token) return slots[slot];
+            }
+            return NONE;
+        }
+
+        void add(int node) {
+            if ((count + 1) * 2 > slots.length) {
+                int[] old = slots;
+                slots = new int[old.length * 2];
+                for (int id : old) {
+                    if (id != 0) put(id);
+                }
+            }
+            put(node);
+            count++;
+        }
+
+        private void put(int node) {
+            int mask = slots.length - 1;
+            int slot = hash(tokens.get(node)) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = node;
+        }
+    }
+
+    private static int hash(int token) {
+        int h = token * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,331 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Approximate {@link SignalRecoveryEngine#recover}: after each token only the
+ * {@code beamWidth} cheapest rooms are kept, and of those only rooms within
+ * {@code margin} edits of the cheapest. The next layer is built by pushing
+ * deletes and matches out of the kept rooms and settling insertions in cost
+ * order until the beam is full, so a token costs O(K * out-degree * log)
+ * however many rooms the graph has. Scratch arrays of V entries are allocated
+ * once per decoder and reset by stamping instead of clearing.
+ * <p>
+ * The last layer settles without a limit until the exit is reached, so the
+ * exit is only missed if every path to it left the beam earlier. Ties are
+ * broken as in the engine, so with a beam as wide as the graph and no margin
+ * the path is the exact one. Backpointers of the kept rooms take 8 bytes per
+ * room and token.
+ * <p>
+ * A decoder holds scratch state and is not thread-safe.
+ */
+public class BeamSignalDecoder {
+    private static final int INF = SignalRecoveryEngine.UNREACHABLE;
+
+    private final SignalRecoveryEngine engine;
+    private final int beamWidth;
+    private final int margin;
+    private final int[] cost;         // valid where seen == stamp
+    private final int[] code;
+    private final int[] tieKey;       // -1 for a delete, else the match's predecessor index
+    private final int[] seen;
+    private final int[] settled;
+    private final int[] touched;      // rooms given a cost this layer
+    private final long[] sources;
+    private final int[] fifo;
+    private int touchedCount;
+    private int stamp;
+    private int[] kept;               // current beam in settle order, with costs
+    private int[] keptCost;
+    private int keptCount;
+    private int[] nextKept;
+    private int[] nextKeptCost;
+
+    /**
+     * @param engine    compiled room graph
+     * @param beamWidth most rooms kept per token
+     * @throws IllegalArgumentException if beamWidth is not positive
+     */
+    public BeamSignalDecoder(SignalRecoveryEngine engine, int beamWidth) {
+        this(engine, beamWidth, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param engine    compiled room graph
+     * @param beamWidth most rooms kept per token
+     * @param margin    most edits a kept room may cost above the cheapest one
+     * @throws IllegalArgumentException if beamWidth is not positive or margin is negative
+     */
+    public BeamSignalDecoder(SignalRecoveryEngine engine, int beamWidth, int margin) {
+        if (beamWidth < 1) throw new IllegalArgumentException("beam width must be positive");
+        if (margin < 0) throw new IllegalArgumentException("margin must not be negative");
+        this.engine = engine;
+        this.beamWidth = beamWidth;
+        this.margin = margin;
+        int rooms = engine.roomCount();
+        cost = new int[rooms];
+        code = new int[rooms];
+        tieKey = new int[rooms];
+        seen = new int[rooms];
+        settled = new int[rooms];
+        touched = new int[rooms];
+        sources = new long[rooms];
+        fifo = new int[rooms];
+        kept = new int[rooms];
+        keptCost = new int[rooms];
+        nextKept = new int[rooms];
+        nextKeptCost = new int[rooms];
+    }
+
+    /**
+     * Recover a room path within the beam.
+     *
+     * @param corrupted observed room labels
+     * @param exitRoom  room the path must end in
+     * @return the path as for {@link SignalRecoveryEngine#recover(List, String)};
+     *         just the exit if no path to it stayed in the beam
+     */
+    public List<String> recover(List<String> corrupted, String exitRoom) {
+        int exit = engine.id(exitRoom);
+        if (exit == -1) return Collections.emptyList();
+        long[][] layers = new long[corrupted.size() + 1][];
+        if (forward(corrupted, exit, layers) == INF) return Collections.singletonList(exitRoom);
+
+        // walk back as the engine does; every backpointer leads to a kept room
+        int start = engine.startRoom();
+        List<String> path = new ArrayList<>();
+        int room = exit;
+        int last = -1;
+        int i = corrupted.size();
+        while (i > 0 || room != start) {
+            if (room != last) path.add(engine.name(room));
+            last = room;
+            long[] layer = layers[i];
+            int k = Arrays.binarySearch(layer, (long) room << 32);
+            int move = (int) layer[k < 0 ? -k - 1 : k];
+            int how = move & 3;
+            if (how == SignalRecoveryEngine.NONE) break;
+            int from = how == SignalRecoveryEngine.DELETE ? room : engine.from(room, move);
+            if (how != SignalRecoveryEngine.INSERT) i--;
+            room = from;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Edit cost of the path {@link #recover} returns, without keeping backpointers.
+     *
+     * @param corrupted observed room labels
+     * @param exitRoom  room the path must end in
+     * @return the number of edits, or {@link SignalRecoveryEngine#UNREACHABLE}
+     *         if the exit is not a room or no path to it stayed in the beam
+     */
+    public int cost(List<String> corrupted, String exitRoom) {
+        int exit = engine.id(exitRoom);
+        return exit == -1 ? INF : forward(corrupted, exit, null);
+    }
+
+    /**
+     * Decode every trace both ways and count where the beam falls short of
+     * the exact answer.
+     *
+     * @param traces observed room labels, one list per log
+     * @param exits  exit room of each log
+     * @return agreement and timing over all traces
+     * @throws IllegalArgumentException if the lists differ in length
+     */
+    public Report compare(List<List<String>> traces, List<String> exits) {
+        if (traces.size() != exits.size()) throw new IllegalArgumentException("one exit per trace expected");
+        int differentPaths = 0;
+        int costlier = 0;
+        int missedExits = 0;
+        long extraCost = 0;
+        int maxExtraCost = 0;
+        long exactNanos = 0;
+        long beamNanos = 0;
+        for (int t = 0; t < traces.size(); t++) {
+            List<String> trace = traces.get(t);
+            String exit = exits.get(t);
+            long begin = System.nanoTime();
+            List<String> exactPath = engine.recover(trace, exit);
+            int exactCost = engine.cost(trace, exit);
+            exactNanos += System.nanoTime() - begin;
+            begin = System.nanoTime();
+            List<String> beamPath = recover(trace, exit);
+            int beamCost = cost(trace, exit);
+            beamNanos += System.nanoTime() - begin;
+
+            if (!beamPath.equals(exactPath)) differentPaths++;
+            if (beamCost == exactCost) continue;
+            if (beamCost == INF) {
+                missedExits++;
+            } else {
+                costlier++;
+                extraCost += beamCost - exactCost;
+                maxExtraCost = Math.max(maxExtraCost, beamCost - exactCost);
+            }
+        }
+        return new Report(traces.size(), differentPaths, costlier, missedExits, extraCost, maxExtraCost,
+                exactNanos, beamNanos);
+    }
+
+    /**
+     * How beam decoding compared with exact decoding over a set of traces.
+     */
+    public static class Report {
+        public final int traces;
+        /** traces whose beam path differs from the exact path, including equal-cost alternatives */
+        public final int differentPaths;
+        /** traces whose beam path costs more edits than the exact one */
+        public final int costlier;
+        /** traces with a reachable exit the beam lost track of */
+        public final int missedExits;
+        /** extra edits summed over the costlier traces */
+        public final long extraCost;
+        public final int maxExtraCost;
+        public final long exactNanos;
+        public final long beamNanos;
+
+        Report(int traces, int differentPaths, int costlier, int missedExits, long extraCost, int maxExtraCost,
+               long exactNanos, long beamNanos) {
+            this.traces = traces;
+            this.differentPaths = differentPaths;
+            this.costlier = costlier;
+            this.missedExits = missedExits;
+            this.extraCost = extraCost;
+            this.maxExtraCost = maxExtraCost;
+            this.exactNanos = exactNanos;
+            this.beamNanos = beamNanos;
+        }
+
+        /**
+         * @return share of traces whose beam path differs from the exact one
+         */
+        public double differenceRate() {
+            return traces == 0 ? 0 : (double) differentPaths / traces;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report(traces=%d, differentPaths=%d, costlier=%d, missedExits=%d, extraCost=%d, "
+                            + "maxExtraCost=%d, exactMs=%.1f, beamMs=%.1f)", traces, differentPaths, costlier,
+                    missedExits, extraCost, maxExtraCost, exactNanos / 1e6, beamNanos / 1e6);
+        }
+    }
+
+    /**
+     * Run the beam over the trace.
+     *
+     * @param layers if not null, receives the sorted (room, code) entries of every layer
+     * @return the exit's cost, or INF if it was not reached
+     */
+    private int forward(List<String> corrupted, int exit, long[][] layers) {
+        int n = corrupted.size();
+        keptCount = 0;
+        int start = engine.startRoom();
+        if (start == -1) return INF;
+
+        // 1) layer 0: START plus the insertions the beam has room for
+        stamp++;
+        touchedCount = 0;
+        offer(start, 0, -1, SignalRecoveryEngine.NONE);
+        settle(n == 0 ? exit : -1, layers, 0);
+
+        // 2) each token: deletes and matches out of the beam, then insertions
+        for (int i = 1; i <= n; i++) {
+            int token = engine.id(corrupted.get(i - 1));
+            stamp++;
+            touchedCount = 0;
+            for (int k = 0; k < keptCount; k++) {
+                int p = kept[k];
+                int c = keptCost[k];
+                offer(p, c + 1, -1, SignalRecoveryEngine.DELETE);
+                for (int e = engine.succStart(p); e < engine.succEnd(p); e++) {
+                    int r = engine.succ(e);
+                    int index = engine.predIndex(e);
+                    offer(r, c + (r == token ? 0 : 1), index, index << 2 | SignalRecoveryEngine.MATCH);
+                }
+            }
+            settle(i == n ? exit : -1, layers, i);
+        }
+        return settled[exit] == stamp ? cost[exit] : INF;
+    }
+
+    /**
+     * Candidate for a room in this layer, taken if cheaper, or as cheap with
+     * the engine's tie order: the delete, then the earliest predecessor.
+     */
+    private void offer(int room, int c, int key, int move) {
+        if (seen[room] != stamp) {
+            seen[room] = stamp;
+            touched[touchedCount++] = room;
+        } else if (c > cost[room] || (c == cost[room] && key >= tieKey[room])) {
+            return;
+        }
+        cost[room] = c;
+        tieKey[room] = key;
+        code[room] = move;
+    }
+
+    /**
+     * Settle the candidates and the rooms they insert into in cost order, as
+     * the engine's closure does, and keep the first ones that fit the beam.
+     * With a target the beam is ignored and settling stops at the target.
+     */
+    private void settle(int target, long[][] layers, int layer) {
+        int count = touchedCount;
+        for (int k = 0; k < count; k++) sources[k] = ((long) cost[touched[k]] << 32) | touched[k];
+        Arrays.sort(sources, 0, count);
+
+        int limit = target == -1 ? beamWidth : Integer.MAX_VALUE;
+        int slack = target == -1 ? margin : Integer.MAX_VALUE;
+        int size = 0;
+        int next = 0;
+        int head = 0;
+        int tail = 0;
+        while ((next < count || head < tail) && size < limit) {
+            int room;
+            if (head == tail || (next < count && (int) (sources[next] >>> 32) <= cost[fifo[head]])) {
+                room = (int) sources[next++];
+            } else {
+                room = fifo[head++];
+            }
+            if (settled[room] == stamp) continue;
+            if (size > 0 && cost[room] - nextKeptCost[0] > slack) break;
+            settled[room] = stamp;
+            nextKept[size] = room;
+            nextKeptCost[size++] = cost[room];
+            if (room == target) break;
+
+            int reach = cost[room] + 1;
+            for (int e = engine.succStart(room); e < engine.succEnd(room); e++) {
+                int r = engine.succ(e);
+                if (r == room || settled[r] == stamp) continue;
+                if (seen[r] == stamp && reach >= cost[r]) continue;
+                if (seen[r] != stamp) {
+                    seen[r] = stamp;
+                    touched[touchedCount++] = r;
+                }
+                cost[r] = reach;
+                code[r] = engine.predIndex(e) << 2 | SignalRecoveryEngine.INSERT;
+                fifo[tail++] = r;
+            }
+        }
+
+        int[] swap = kept;
+        kept = nextKept;
+        nextKept = swap;
+        swap = keptCost;
+        keptCost = nextKeptCost;
+        nextKeptCost = swap;
+        keptCount = size;
+        if (layers != null) {
+            long[] entries = new long[size];
+            for (int k = 0; k < size; k++) entries[k] = ((long) kept[k] << 32) | code[kept[k]];
+            Arrays.sort(entries);
+            layers[layer] = entries;
+        }
+    }
+}
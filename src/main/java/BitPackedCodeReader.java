@@ -0,0 +1,149 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a stream written by {@link BitPackedCodeWriter}, decoding each code
+ * through an {@link LzwDecoder}. The decoder tracks dictionary growth, so it
+ * also determines the bit width of every value. The decoder is configured with
+ * the size limit recorded in the stream header.
+ */
+public class BitPackedCodeReader {
+    /**
+     * Returned by {@link #next()} at the end of a command sequence.
+     */
+    public static final int SEQUENCE_END = -1;
+
+    /**
+     * Returned by {@link #next()} once the stream is exhausted.
+     */
+    public static final int STREAM_END = -2;
+
+    private final InputStream in;
+    private final LzwDecoder decoder;
+    private long bitBuffer;
+    private int bitCount;
+    private boolean finished;
+
+    /**
+     * Open a stream and validate its header.
+     *
+     * @param in      source of packed bytes
+     * @param decoder decoder seeded with the encoder's starting trie
+     * @throws IllegalArgumentException if the header does not match this format or decoder
+     */
+    public BitPackedCodeReader(InputStream in, LzwDecoder decoder) {
+        this.in = in;
+        this.decoder = decoder;
+        if (readBits(32) != BitPackedCodeWriter.MAGIC) {
+            throw new IllegalArgumentException("not a bit-packed LZW stream");
+        }
+        int version = readBits(8);
+        if (version != BitPackedCodeWriter.FORMAT_VERSION) {
+            throw new IllegalArgumentException("unsupported format version " + version);
+        }
+        int startCode = readBits(32);
+        if (startCode != decoder.nextCode()) {
+            throw new IllegalArgumentException("stream starts at code " + startCode
+                    + " but decoder is seeded up to " + decoder.nextCode());
+        }
+        int policy = readBits(8);
+        if (policy >= DictionaryPolicy.values().length) {
+            throw new IllegalArgumentException("unknown dictionary policy " + policy);
+        }
+        decoder.configure(DictionaryPolicy.values()[policy], readBits(32));
+    }
+
+    /**
+     * Read from a byte buffer, starting at its position.
+     *
+     * @param buffer  source of packed bytes
+     * @param decoder decoder seeded with the encoder's starting trie
+     */
+    public BitPackedCodeReader(ByteBuffer buffer, LzwDecoder decoder) {
+        this(new ByteBufferInput(buffer), decoder);
+    }
+
+    /**
+     * Read the next value. Decoded tokens are left in {@code decoder.buffer()}.
+     *
+     * @return number of decoded tokens, {@link #SEQUENCE_END} or {@link #STREAM_END}
+     */
+    public int next() {
+        while (!finished) {
+            int limit = decoder.codeLimit();
+            int value = readBits(BitPackedCodeWriter.width(limit));
+            if (value < limit) return decoder.accept(value);
+
+            switch (value - limit) {
+                case BitPackedCodeWriter.END_SEQUENCE:
+                    decoder.endSequence();
+                    return SEQUENCE_END;
+                case BitPackedCodeWriter.END_STREAM:
+                    finished = true;
+                    break;
+                case BitPackedCodeWriter.CLEAR:
+                    decoder.clear();
+                    break;
+                default:
+                    throw new IllegalStateException("corrupt stream: value " + value + " above limit " + limit);
+            }
+        }
+        return STREAM_END;
+    }
+
+    /**
+     * Decode every remaining sequence in the stream.
+     *
+     * @return the decoded command sequences
+     */
+    public List<List<String>> readAll() {
+        List<List<String>> sequences = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int n;
+        while ((n = next()) != STREAM_END) {
+            if (n == SEQUENCE_END) {
+                sequences.add(current);
+                current = new ArrayList<>();
+            } else {
+                current.addAll(Arrays.asList(decoder.buffer()).subList(0, n));
+            }
+        }
+        return sequences;
+    }
+
+    private int readBits(int width) {
+        try {
+            while (bitCount < width) {
+                int b = in.read();
+                if (b < 0) throw new EOFException("truncated bit-packed stream");
+                bitBuffer = (bitBuffer << 8) | b;
+                bitCount += 8;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bitCount -= width;
+        int value = (int) ((bitBuffer >>> bitCount) & ((1L << width) - 1));
+        bitBuffer &= (1L << bitCount) - 1;
+        return value;
+    }
+
+    private static class ByteBufferInput extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInput(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes LZW codes as variable-width, bit-packed values.
+ * As in classic LZW, a code takes only as many bits as the dictionary size
+ * requires at that moment, so widths grow with the codebook. Sequence ends,
+ * dictionary clears and the stream end are written as control values just above
+ * the current code limit.
+ * {@link BitPackedCodeReader} reads the stream back through an
+ * {@link LzwDecoder}.
+ * <p>
+ * Stream layout: magic (4 bytes), format version (1 byte), the codebook's
+ * starting next code (4 bytes), its {@link DictionaryPolicy} ordinal (1 byte) and
+ * capacity (4 bytes), then the packed values, most significant bit first,
+ * zero-padded to a whole byte.
+ */
+public class BitPackedCodeWriter implements CodeSink {
+    public static final int MAGIC = 0x4C5A5742; // "LZWB"
+    public static final int FORMAT_VERSION = 2;
+
+    // control values, offset from the current code limit
+    static final int END_SEQUENCE = 0;
+    static final int END_STREAM = 1;
+    static final int CLEAR = 2;
+    static final int CONTROL_CODES = 3;
+
+    private final OutputStream out;
+    private final CommandCodebook book;
+    private boolean inSequence; // a code has been written since the last sequence end
+    private long bitBuffer;
+    private int bitCount;
+    private long bytesWritten;
+    private long codesWritten;
+
+    /**
+     * Start a stream and write its header.
+     *
+     * @param out  destination of the packed bytes
+     * @param book codebook the encoder feeding this sink is growing
+     */
+    public BitPackedCodeWriter(OutputStream out, CommandCodebook book) {
+        this.out = out;
+        this.book = book;
+        writeBits(MAGIC, 32);
+        writeBits(FORMAT_VERSION, 8);
+        writeBits(book.nextCode(), 32);
+        writeBits(book.policy().ordinal(), 8);
+        writeBits(book.capacity(), 32);
+    }
+
+    @Override
+    public void code(int code) {
+        writeBits(code, width(book.nextCode()));
+        inSequence = true;
+        codesWritten++;
+    }
+
+    @Override
+    public void endSequence() {
+        writeControl(END_SEQUENCE);
+        inSequence = false;
+    }
+
+    @Override
+    public void clear() {
+        writeControl(CLEAR);
+        inSequence = false;
+    }
+
+    /**
+     * Write the end-of-stream marker, pad to a byte boundary and flush.
+     * The encoder's current sequence should be ended first.
+     */
+    public void finish() {
+        writeControl(END_STREAM);
+        if (bitCount > 0) writeBits(0, 8 - bitCount);
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return bytes written so far, header included
+     */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return number of codewords written so far
+     */
+    public long codesWritten() {
+        return codesWritten;
+    }
+
+    /**
+     * Number of bits per value while the codebook's limit is {@code limit}.
+     *
+     * @param limit exclusive upper bound on codes at this point
+     * @return bit width covering every code and control value
+     */
+    static int width(int limit) {
+        int max = limit + CONTROL_CODES - 1;
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+    }
+
+    // controls are read while the decoder still expects the code pending after
+    // the last one in this sequence, so they use the decoder's view of the limit
+    private void writeControl(int control) {
+        int limit = book.nextCode() + (inSequence && !book.isFull() ? 1 : 0);
+        writeBits(limit + control, width(limit));
+    }
+
+    private void writeBits(int value, int width) {
+        bitBuffer = (bitBuffer << width) | (value & 0xFFFFFFFFL);
+        bitCount += width;
+        try {
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                out.write((int) (bitBuffer >>> bitCount));
+                bytesWritten++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bitBuffer &= (1L << bitCount) - 1;
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.Arrays;
+
+/**
+ * Dial's bucket queue for graphs with small integer edge weights.
+ * Queued distances always lie within {@code maxWeight} of the smallest one, so
+ * {@code maxWeight + 1} circular buckets hold them all. Each bucket is an
+ * intrusive doubly-linked list threaded through per-room arrays, making update
+ * and poll O(1) apart from skipping empty buckets. As in Dijkstra, keys must
+ * not fall below the distance last polled while the queue is non-empty.
+ * <p>
+ * Rooms in a bucket are not ordered by exit rank. When zero-weight edges let a
+ * room improve its rank after it was polled, it is queued and polled again.
+ */
+public class BucketQueue implements DistanceQueue {
+    private final int[] heads;  // bucket -> first room, or -1
+    private final int[] next;   // room -> next room in its bucket, or -1
+    private final int[] prev;   // room -> previous room in its bucket, or -1
+    private final int[] bucket; // room -> bucket, or -1 if not queued
+    private final long[] keys;  // room -> key while queued
+    private int cursor;         // last polled distance, a lower bound for queued ones
+    private int size;
+
+    /**
+     * @param rooms     number of room ids the queue can hold
+     * @param maxWeight largest edge weight of the graph
+     */
+    public BucketQueue(int rooms, int maxWeight) {
+        if (maxWeight < 0 || maxWeight == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxWeight out of range: " + maxWeight);
+        }
+        heads = new int[maxWeight + 1];
+        next = new int[rooms];
+        prev = new int[rooms];
+        bucket = new int[rooms];
+        keys = new long[rooms];
+        Arrays.fill(heads, -1);
+        Arrays.fill(bucket, -1);
+    }
+
+    @Override
+    public void update(int room, long key) {
+        int dist = DistanceQueue.distance(key);
+        // an empty queue may move its window anywhere
+        if (size == 0 && (dist < cursor || dist - cursor >= heads.length)) cursor = dist;
+        if (dist < cursor || dist - cursor >= heads.length) {
+            throw new IllegalArgumentException("distance " + dist + " outside the window starting at " + cursor);
+        }
+
+        int target = dist % heads.length;
+        if (bucket[room] != -1) {
+            if (keys[room] <= key) return;
+            keys[room] = key;
+            if (bucket[room] == target) return;
+            unlink(room);
+        } else {
+            keys[room] = key;
+            size++;
+        }
+        link(room, target);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int poll() {
+        if (size == 0) throw new IllegalStateException("queue is empty");
+        while (heads[cursor % heads.length] == -1) cursor++;
+        int room = heads[cursor % heads.length];
+        unlink(room);
+        bucket[room] = -1;
+        size--;
+        return room;
+    }
+
+    @Override
+    public void clear() {
+        for (int b = 0; b < heads.length; b++) {
+            for (int room = heads[b]; room != -1; room = next[room]) bucket[room] = -1;
+            heads[b] = -1;
+        }
+        size = 0;
+    }
+
+    private void link(int room, int b) {
+        bucket[room] = b;
+        prev[room] = -1;
+        next[room] = heads[b];
+        if (heads[b] != -1) prev[heads[b]] = room;
+        heads[b] = room;
+    }
+
+    private void unlink(int room) {
+        int b = bucket[room];
+        if (prev[room] == -1) heads[b] = next[room];
+        else next[prev[room]] = next[room];
+        if (next[room] != -1) prev[next[room]] = prev[room];
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Receives LZW codes as soon as an encoder can no longer extend its match.
+ */
+public interface CodeSink {
+    /**
+     * Receive the next emitted code.
+     *
+     * @param code codeword of the longest match
+     */
+    void code(int code);
+
+    /**
+     * Called after the last code of a sequence. Matches never span two
+     * sequences, so decoders use this to stay in step with dictionary growth.
+     */
+    default void endSequence() {
+    }
+
+    /**
+     * Called when a {@link DictionaryPolicy#RESET} codebook is full and is about
+     * to drop its learned patterns. The match in progress continues afterwards.
+     */
+    default void clear() {
+    }
+}
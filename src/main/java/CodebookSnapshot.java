@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshots of an {@link ArrayTrie}, so a restarted process can reuse
+ * the patterns it learned before.
+ * <p>
+ * Loading maps the file with {@link FileChannel#map}. The trie arrays are views
+ * of the mapping, not copies; only the token table is decoded onto the heap.
+ * The mapping is read-only, so the trie copies its arrays on the first change.
+ * <p>
+ * Layout (big-endian): magic, format version, node count (sentinel included),
+ * next code, token count, token table length, CRC32 of everything after the
+ * header (seven 4-byte ints); then the token table (length-prefixed UTF-8,
+ * zero-padded to a multiple of 4); then the token, code, child and sibling
+ * arrays.
+ */
+public class CodebookSnapshot {
+    public static final int MAGIC = 0x444C4253; // "DLBS"
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 7 * 4;
+
+    private CodebookSnapshot() {
+    }
+
+    /**
+     * Write a snapshot, replacing any existing file.
+     *
+     * @param trie trie to save
+     * @param file destination path
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(ArrayTrie trie, Path file) throws IOException {
+        TokenInterner interner = trie.interner();
+        byte[][] tokenBytes = new byte[interner.size()][];
+        int tableLength = 0;
+        for (int i = 0; i < tokenBytes.length; i++) {
+            tokenBytes[i] = interner.token(i).getBytes(StandardCharsets.UTF_8);
+            tableLength += 4 + tokenBytes[i].length;
+        }
+        tableLength = (tableLength + 3) & ~3;
+
+        int nodes = trie.nodeCount() + 1;
+        ByteBuffer body = ByteBuffer.allocate(tableLength + 4 * 4 * nodes);
+        for (byte[] bytes : tokenBytes) {
+            body.putInt(bytes.length).put(bytes);
+        }
+        body.position(tableLength);
+        for (IntBuffer array : trie.buffers()) {
+            for (int i = 0; i < nodes; i++) body.putInt(array.get(i));
+        }
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nodes).putInt(trie.nextCode())
+                .putInt(tokenBytes.length).putInt(tableLength).putInt((int) crc.getValue());
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            while (body.hasRemaining()) channel.write(body);
+        }
+    }
+
+    /**
+     * Map a snapshot and verify its checksum.
+     *
+     * @param file snapshot path
+     * @return a trie whose arrays are views of the mapped file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static ArrayTrie load(Path file) throws IOException {
+        return load(file, true);
+    }
+
+    /**
+     * Map a snapshot.
+     *
+     * @param file           snapshot path
+     * @param verifyChecksum false to skip the CRC; the layout and every link are
+     *                       still checked
+     * @return a trie whose arrays are views of the mapped file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static ArrayTrie load(Path file, boolean verifyChecksum) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a codebook snapshot");
+        }
+        int version = mapped.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        int nodes = mapped.getInt(8);
+        int nextCode = mapped.getInt(12);
+        int tokenCount = mapped.getInt(16);
+        int tableLength = mapped.getInt(20);
+        int checksum = mapped.getInt(24);
+
+        long expectedLength = HEADER_BYTES + (long) tableLength + 16L * nodes;
+        if (nodes < 1 || tableLength < 0 || mapped.limit() != expectedLength) {
+            throw new IOException("snapshot is " + mapped.limit() + " bytes, header implies " + expectedLength);
+        }
+        if (tokenCount < 0 || tokenCount > tableLength / 4 || nextCode < 0) {
+            throw new IOException("snapshot header is corrupt: " + tokenCount + " tokens in a " + tableLength
+                    + " byte table, next code " + nextCode);
+        }
+
+        if (verifyChecksum) {
+            ByteBuffer body = mapped.duplicate();
+            body.position(HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("snapshot checksum mismatch, file is corrupt");
+            }
+        }
+
+        // checked against the table, since a file loaded without its checksum may be anything
+        TokenInterner interner = new TokenInterner();
+        ByteBuffer table = mapped.duplicate();
+        table.position(HEADER_BYTES).limit(HEADER_BYTES + tableLength);
+        for (int i = 0; i < tokenCount; i++) {
+            int length = table.remaining() < 4 ? -1 : table.getInt();
+            if (length < 0 || length > table.remaining()) {
+                throw new IOException("snapshot token " + i + " runs past the token table");
+            }
+            byte[] bytes = new byte[length];
+            table.get(bytes);
+            if (interner.intern(new String(bytes, StandardCharsets.UTF_8)) != i) {
+                throw new IOException("snapshot token " + i + " repeats an earlier token");
+            }
+        }
+
+        IntBuffer[] arrays = new IntBuffer[4];
+        int offset = HEADER_BYTES + tableLength;
+        for (int a = 0; a < arrays.length; a++) {
+            ByteBuffer view = mapped.duplicate();
+            view.position(offset).limit(offset + 4 * nodes);
+            arrays[a] = view.slice().asIntBuffer();
+            offset += 4 * nodes;
+        }
+        checkNodes(arrays, nodes, tokenCount, nextCode);
+        return new ArrayTrie(interner, arrays[0], arrays[1], arrays[2], arrays[3], nodes, nextCode);
+    }
+
+    /**
+     * Check every field against the counts, and that the child and sibling
+     * links form a tree, so lookups neither index out of range nor loop.
+     */
+    private static void checkNodes(IntBuffer[] arrays, int nodes, int tokenCount, int nextCode)
+            throws IOException {
+        IntBuffer tokens = arrays[0];
+        IntBuffer codes = arrays[1];
+        IntBuffer children = arrays[2];
+        IntBuffer siblings = arrays[3];
+        for (int i = 1; i < nodes; i++) {
+            if (tokens.get(i) < 0 || tokens.get(i) >= tokenCount) {
+                throw new IOException("snapshot node " + i + " has token " + tokens.get(i) + " of " + tokenCount);
+            }
+            if (codes.get(i) < -1 || codes.get(i) >= nextCode) {
+                throw new IOException("snapshot node " + i + " has code " + codes.get(i) + ", next is " + nextCode);
+            }
+        }
+        for (int i = 0; i < nodes; i++) {
+            checkLink(i, children.get(i), nodes);
+            checkLink(i, siblings.get(i), nodes);
+        }
+
+        // 1) every node is reached at most once from the root
+        boolean[] reached = new boolean[nodes];
+        int[] heads = new int[nodes];
+        int pending = 0;
+        if (siblings.get(ArrayTrie.ROOT) != ArrayTrie.NONE) {
+            throw new IOException("snapshot root has a sibling");
+        }
+        heads[pending++] = children.get(ArrayTrie.ROOT);
+        while (pending > 0) {
+            for (int node = heads[--pending]; node != ArrayTrie.NONE; node = siblings.get(node)) {
+                if (reached[node]) throw new IOException("snapshot node " + node + " is linked twice");
+                reached[node] = true;
+                // one head per reached node, plus the root's, so heads never overflows
+                if (children.get(node) != ArrayTrie.NONE) heads[pending++] = children.get(node);
+            }
+        }
+    }
+
+    private static void checkLink(int node, int link, int nodes) throws IOException {
+        if (link != ArrayTrie.NONE && (link < 1 || link >= nodes)) {
+            throw new IOException("snapshot node " + node + " links to node " + link + " of " + nodes);
+        }
+    }
+}
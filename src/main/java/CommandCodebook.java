@@ -0,0 +1,281 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * LZW codebook wrapping a caller-owned DLB trie of command patterns.
+ * The trie is mirrored into an {@link IntDLBNode} trie once, and the next free
+ * code and node count are tracked as patterns are added. Starting a new batch is
+ * O(1), and the same codebook can be reused across batches without walking the
+ * dictionary again.
+ * <p>
+ * New patterns are linked into the caller's DLBNode trie as well. While a
+ * codebook is in use, that trie should only be grown through the codebook.
+ * <p>
+ * A codebook may be capped at a number of codes. Once it is full, a
+ * {@link DictionaryPolicy} decides what happens next. Patterns present at wrap
+ * time are never dropped. Only learned leaf patterns can be evicted, so those
+ * are kept on their own recency list, and a pattern joins it as most recent
+ * when its last learned extension goes. Eviction is then O(1).
+ */
+public class CommandCodebook {
+    private final DLBNode root;
+    private final TokenInterner interner;
+    private final IntDLBNode top;
+    private final DictionaryPolicy policy;
+    private final int capacity;
+    private final int baseCode; // codes below this were present at wrap time
+    private int nextCode;
+    private int nodeCount;
+
+    // learned patterns without learned extensions, least recently used first; empty for UNBOUNDED
+    private final IntDLBNode learned = new IntDLBNode(-1, null);
+
+    private CommandCodebook(DLBNode root, DictionaryPolicy policy, int capacity) {
+        this.root = root;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.interner = new TokenInterner();
+        this.top = IntDLBNode.mirror(root, interner);
+
+        // one iterative pass to pick up the highest code and the node count
+        int maxCode = -1;
+        Deque<IntDLBNode> stack = new ArrayDeque<>();
+        if (top.child != null) stack.push(top.child);
+        while (!stack.isEmpty()) {
+            IntDLBNode node = stack.pop();
+            nodeCount++;
+            maxCode = Math.max(maxCode, node.code);
+            if (node.sibling != null) stack.push(node.sibling);
+            if (node.child != null) stack.push(node.child);
+        }
+        this.nextCode = maxCode + 1;
+        this.baseCode = nextCode;
+        learned.lruPrev = learned;
+        learned.lruNext = learned;
+
+        if (policy != DictionaryPolicy.UNBOUNDED && capacity <= nextCode) {
+            throw new IllegalArgumentException("capacity " + capacity
+                    + " leaves no room beyond the " + nextCode + " preloaded codes");
+        }
+    }
+
+    /**
+     * Wrap an existing DLB trie. This is the only step that walks the whole trie.
+     *
+     * @param root first node of the top-level sibling chain (may be null)
+     * @return a codebook continuing from the trie's highest code
+     */
+    public static CommandCodebook wrap(DLBNode root) {
+        return new CommandCodebook(root, DictionaryPolicy.UNBOUNDED, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Wrap an existing DLB trie with a size limit.
+     *
+     * @param root     first node of the top-level sibling chain (may be null)
+     * @param policy   what to do once the codebook is full
+     * @param capacity maximum number of codes, preloaded ones included
+     * @return a bounded codebook continuing from the trie's highest code
+     */
+    public static CommandCodebook wrap(DLBNode root, DictionaryPolicy policy, int capacity) {
+        return new CommandCodebook(root, policy, capacity);
+    }
+
+    /**
+     * @return the policy applied once the codebook is full
+     */
+    public DictionaryPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * @return the maximum number of codes
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return true once every code up to the capacity is in use
+     */
+    public boolean isFull() {
+        return policy != DictionaryPolicy.UNBOUNDED && nextCode >= capacity;
+    }
+
+    /**
+     * @return the DLB trie this codebook was created from
+     */
+    public DLBNode root() {
+        return root;
+    }
+
+    /**
+     * @return the interner used for this codebook's token ids
+     */
+    public TokenInterner interner() {
+        return interner;
+    }
+
+    /**
+     * @return the code the next added pattern will receive
+     */
+    public int nextCode() {
+        return nextCode;
+    }
+
+    /**
+     * @return the number of nodes currently in the trie
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Look up the single-token pattern for a command.
+     *
+     * @param token the command token
+     * @return its top-level node
+     * @throws IllegalArgumentException if the command has no code in the trie
+     */
+    public IntDLBNode primitive(String token) {
+        int id = interner.idOf(token);
+        IntDLBNode node = id == -1 ? null : top.findChild(id);
+        if (node == null || node.code == -1) {
+            throw new IllegalArgumentException("unknown command token: " + token);
+        }
+        return node;
+    }
+
+    /**
+     * Find the coded pattern extending {@code match} by one token.
+     *
+     * @param match a node in this codebook's trie
+     * @param token the next command token
+     * @return the extended node, or null if that pattern has no code yet
+     */
+    public IntDLBNode extension(IntDLBNode match, String token) {
+        int id = interner.idOf(token);
+        IntDLBNode next = id == -1 ? null : match.findChild(id);
+        return next != null && next.code != -1 ? next : null;
+    }
+
+    /**
+     * Add the pattern {@code match + token} under the next free code. When the
+     * codebook is full, a FREEZE or RESET codebook adds nothing, and an LRU
+     * codebook evicts its least recently used leaf pattern to reuse that code.
+     *
+     * @param match a node in this codebook's trie
+     * @param token the command token extending it; must be a known primitive
+     * @return the node holding the new pattern, or null if nothing was added
+     */
+    public IntDLBNode addPattern(IntDLBNode match, String token) {
+        int id = primitive(token).token;
+
+        int code;
+        if (!isFull()) {
+            code = nextCode++;
+        } else if (policy == DictionaryPolicy.LRU) {
+            IntDLBNode victim = leastRecentlyUsedLeaf(match);
+            if (victim == null) return null;
+            code = victim.code;
+            forget(victim);
+        } else {
+            return null;
+        }
+
+        IntDLBNode next = match.findChild(id);
+        if (next == null) {
+            next = match.addChild(id, interner, code);
+            nodeCount++;
+        } else {
+            // pattern was preloaded without a code of its own
+            next.code = code;
+            next.source.code = code;
+        }
+
+        if (policy != DictionaryPolicy.UNBOUNDED) {
+            if (match.learnedChildren++ == 0 && match.lruNext != null) unlinkLearned(match);
+            append(next);
+        }
+        return next;
+    }
+
+    /**
+     * Mark a pattern as just used. Only LRU codebooks track this.
+     *
+     * @param node a node in this codebook's trie
+     */
+    public void touch(IntDLBNode node) {
+        if (policy == DictionaryPolicy.LRU && node.lruNext != null) {
+            unlinkLearned(node);
+            append(node);
+        }
+    }
+
+    /**
+     * Drop every learned pattern, returning to the patterns present at wrap
+     * time. Nodes in the caller's DLBNode trie are removed as well.
+     */
+    public void reset() {
+        // only leaves are listed; a pattern is listed once its last extension is forgotten
+        while (learned.lruPrev != learned) {
+            forget(learned.lruPrev);
+        }
+        nextCode = baseCode;
+    }
+
+    private IntDLBNode leastRecentlyUsedLeaf(IntDLBNode exclude) {
+        IntDLBNode node = learned.lruNext;
+        if (node == exclude) node = node.lruNext;
+        return node == learned ? null : node;
+    }
+
+    private void forget(IntDLBNode node) {
+        unlinkLearned(node);
+        IntDLBNode parent = node.parent;
+        if (--parent.learnedChildren == 0 && parent.code >= baseCode) append(parent);
+        if (node.child == null) {
+            node.parent.removeChild(node);
+            nodeCount--;
+        } else {
+            // a preloaded node that only gained a code; keep it and its subtree
+            node.code = -1;
+            node.source.code = -1;
+        }
+    }
+
+    private void append(IntDLBNode node) {
+        node.lruPrev = learned.lruPrev;
+        node.lruNext = learned;
+        learned.lruPrev.lruNext = node;
+        learned.lruPrev = node;
+    }
+
+    private void unlinkLearned(IntDLBNode node) {
+        node.lruPrev.lruNext = node.lruNext;
+        node.lruNext.lruPrev = node.lruPrev;
+        node.lruPrev = null;
+        node.lruNext = null;
+    }
+
+    /**
+     * LZW-compress a batch of command sequences, growing this codebook in place.
+     * Matches never span two sequences.
+     *
+     * @param sequences list of command sequences, each a list of string tokens
+     * @return the emitted codes for all sequences in order
+     */
+    public List<Integer> compress(List<List<String>> sequences) {
+        List<Integer> compressed = new ArrayList<>();
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(this, compressed::add);
+
+        for (List<String> sequence : sequences) {
+            encoder.accept(sequence);
+            encoder.endSequence();
+        }
+
+        return compressed;
+    }
+}
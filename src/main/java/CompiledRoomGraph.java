@@ -0,0 +1,225 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Room graph compiled to dense integer ids and compressed sparse row (CSR)
+ * adjacency. The out-edges of room {@code v} are the indices
+ * {@code edgeStart(v) .. edgeEnd(v) - 1} of the target and weight arrays.
+ * <p>
+ * Rooms that are keys of the source map get ids {@code 0 .. listedRooms() - 1}
+ * in the map's iteration order. Rooms that only appear as edge targets come
+ * after them.
+ * <p>
+ * The arrays live in IntBuffers, on the heap for compiled graphs or as views
+ * of a file mapped by {@link RoomGraphFile}. Searches read them the same way.
+ */
+public class CompiledRoomGraph {
+    private final Names names;
+    private final int listedRooms;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final int maxWeight;
+
+    /**
+     * Room id to name mapping, either heap tables or a mapped string table.
+     */
+    interface Names {
+        int count();
+
+        String name(int room);
+
+        /**
+         * @return the room's id, or -1 if there is no such room
+         */
+        int id(String name);
+    }
+
+    CompiledRoomGraph(Names names, int listedRooms, IntBuffer offsets, IntBuffer targets,
+                      IntBuffer weights, int maxWeight) {
+        this.names = names;
+        this.listedRooms = listedRooms;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Compile an adjacency map.
+     *
+     * @param roomGraph map from room name to its weighted outgoing edges
+     * @return the compiled graph
+     * @throws IllegalArgumentException if an edge has a negative weight
+     */
+    public static CompiledRoomGraph compile(Map<String, List<Edge>> roomGraph) {
+        Map<String, Integer> ids = new HashMap<>();
+        int edgeCount = 0;
+        for (Map.Entry<String, List<Edge>> entry : roomGraph.entrySet()) {
+            ids.put(entry.getKey(), ids.size());
+            if (entry.getValue() != null) edgeCount += entry.getValue().size();
+        }
+        int listedRooms = ids.size();
+
+        int[] offsets = new int[listedRooms + 1];
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int maxWeight = 0;
+        int e = 0;
+        int room = 0;
+        for (List<Edge> edges : roomGraph.values()) {
+            offsets[room++] = e;
+            if (edges == null) continue;
+            for (Edge edge : edges) {
+                if (edge.weight < 0) {
+                    throw new IllegalArgumentException("negative edge weight: " + edge);
+                }
+                Integer target = ids.get(edge.to);
+                if (target == null) {
+                    target = ids.size();
+                    ids.put(edge.to, target);
+                }
+                targets[e] = target;
+                weights[e] = edge.weight;
+                maxWeight = Math.max(maxWeight, edge.weight);
+                e++;
+            }
+        }
+        offsets[listedRooms] = e;
+
+        // rooms only seen as targets have no out-edges
+        int rooms = ids.size();
+        if (rooms > listedRooms) {
+            int[] all = new int[rooms + 1];
+            System.arraycopy(offsets, 0, all, 0, listedRooms + 1);
+            for (int v = listedRooms + 1; v <= rooms; v++) all[v] = e;
+            offsets = all;
+        }
+
+        String[] names = new String[rooms];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            names[entry.getValue()] = entry.getKey();
+        }
+        return new CompiledRoomGraph(new ArrayNames(names, ids), listedRooms, IntBuffer.wrap(offsets),
+                IntBuffer.wrap(targets), IntBuffer.wrap(weights), maxWeight);
+    }
+
+    /**
+     * Build the graph with every edge turned around. Room ids and names are
+     * shared with this graph.
+     *
+     * @return the reversed graph
+     */
+    public CompiledRoomGraph reversed() {
+        int rooms = roomCount();
+        int edges = edgeCount();
+        int[] reverseOffsets = new int[rooms + 1];
+        for (int e = 0; e < edges; e++) reverseOffsets[targets.get(e) + 1]++;
+        for (int v = 0; v < rooms; v++) reverseOffsets[v + 1] += reverseOffsets[v];
+
+        int[] fill = Arrays.copyOf(reverseOffsets, rooms);
+        int[] sources = new int[edges];
+        int[] reverseWeights = new int[edges];
+        for (int u = 0; u < rooms; u++) {
+            for (int e = offsets.get(u); e < offsets.get(u + 1); e++) {
+                int slot = fill[targets.get(e)]++;
+                sources[slot] = u;
+                reverseWeights[slot] = weights.get(e);
+            }
+        }
+        return new CompiledRoomGraph(names, listedRooms, IntBuffer.wrap(reverseOffsets), IntBuffer.wrap(sources),
+                IntBuffer.wrap(reverseWeights), maxWeight);
+    }
+
+    /**
+     * @return number of rooms, including ones only seen as edge targets
+     */
+    public int roomCount() {
+        return names.count();
+    }
+
+    /**
+     * @return number of rooms that were keys of the source map
+     */
+    public int listedRooms() {
+        return listedRooms;
+    }
+
+    /**
+     * @return number of edges
+     */
+    public int edgeCount() {
+        return targets.limit();
+    }
+
+    /**
+     * @return the largest edge weight, or 0 if there are no edges
+     */
+    public int maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @param name room name
+     * @return the room's id, or -1 if the room is not in the graph
+     */
+    public int id(String name) {
+        return names.id(name);
+    }
+
+    /**
+     * @param room room id
+     * @return the room's name
+     */
+    public String name(int room) {
+        return names.name(room);
+    }
+
+    public int edgeStart(int room) {
+        return offsets.get(room);
+    }
+
+    public int edgeEnd(int room) {
+        return offsets.get(room + 1);
+    }
+
+    public int edgeTarget(int edge) {
+        return targets.get(edge);
+    }
+
+    public int edgeWeight(int edge) {
+        return weights.get(edge);
+    }
+
+    /**
+     * Names kept in an array with a hash map for the reverse lookup.
+     */
+    private static class ArrayNames implements Names {
+        private final String[] names;
+        private final Map<String, Integer> ids;
+
+        ArrayNames(String[] names, Map<String, Integer> ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+
+        @Override
+        public int count() {
+            return names.length;
+        }
+
+        @Override
+        public String name(int room) {
+            return names[room];
+        }
+
+        @Override
+        public int id(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel multi-source shortest paths by delta-stepping (Meyer and Sanders).
+ * Rooms are grouped into buckets of width {@code delta} by tentative distance.
+ * The lowest bucket's light edges ({@code weight <= delta}) are relaxed in
+ * parallel until the bucket stops changing; its heavy edges are then relaxed
+ * once. Relaxations lower a room's packed (distance, exit rank) key with a
+ * compare-and-set loop on an AtomicLongArray.
+ * <p>
+ * The final keys are the least fixpoint of the relaxations, so the result does
+ * not depend on thread timing: it matches {@link ExitDistances#compute},
+ * including ties going to the exit listed first and exits never being
+ * relaxed into.
+ */
+public class DeltaSteppingSearch {
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+    private final int delta;
+
+    /**
+     * Search with a bucket width of the graph's mean edge weight.
+     *
+     * @param pool pool running the relaxation tasks
+     */
+    public DeltaSteppingSearch(ForkJoinPool pool) {
+        this(pool, 0);
+    }
+
+    /**
+     * @param pool  pool running the relaxation tasks
+     * @param delta bucket width, or 0 to use the graph's mean edge weight
+     */
+    public DeltaSteppingSearch(ForkJoinPool pool, int delta) {
+        if (delta < 0) throw new IllegalArgumentException("delta must not be negative");
+        this.pool = pool;
+        this.delta = delta;
+    }
+
+    /**
+     * Same contract as {@link A2#computeClosestExits}.
+     *
+     * @param roomGraph map from room name to its weighted outgoing edges
+     * @param exitRooms exit room names, in tie-breaking order
+     * @return a map from each listed room to its ExitInfo
+     */
+    public Map<String, ExitInfo> computeClosestExits(Map<String, List<Edge>> roomGraph, List<String> exitRooms) {
+        return compute(CompiledRoomGraph.compile(roomGraph), exitRooms).toMap();
+    }
+
+    /**
+     * Run the search.
+     *
+     * @param graph     compiled room graph
+     * @param exitRooms exit room names; names not in the graph are ignored
+     * @return distances and nearest exits for every room
+     */
+    public ExitDistances compute(CompiledRoomGraph graph, List<String> exitRooms) {
+        Run run = new Run(graph, delta > 0 ? delta : meanWeight(graph));
+        int[] exits = ExitDistances.exitIds(graph, exitRooms);
+        RoomList seeds = new RoomList();
+        for (int rank = 0; rank < exits.length; rank++) {
+            run.keys.set(exits[rank], DistanceQueue.key(0, rank));
+            run.isExit[exits[rank]] = true;
+            seeds.add(exits[rank]);
+        }
+        run.distribute(seeds, -1);
+
+        while (!run.buckets.isEmpty()) {
+            Map.Entry<Integer, RoomList> entry = run.buckets.pollFirstEntry();
+            int bucket = entry.getKey();
+            RoomList settled = new RoomList();
+
+            // 1) light edges, repeated while rooms re-enter this bucket
+            RoomList frontier = run.current(entry.getValue(), bucket, settled);
+            while (frontier.size > 0) {
+                RoomList improved = relaxAll(run, frontier, true);
+                frontier = run.current(run.distribute(improved, bucket), bucket, settled);
+            }
+
+            // 2) heavy edges once; they always land in later buckets
+            run.distribute(relaxAll(run, settled, false), bucket);
+        }
+
+        int n = graph.roomCount();
+        int[] dist = new int[n];
+        int[] exitRank = new int[n];
+        for (int room = 0; room < n; room++) {
+            long key = run.keys.get(room);
+            dist[room] = key == Long.MAX_VALUE ? ExitDistances.UNREACHABLE : DistanceQueue.distance(key);
+            exitRank[room] = key == Long.MAX_VALUE ? -1 : DistanceQueue.rank(key);
+        }
+        return new ExitDistances(graph, exits, dist, exitRank, nextHops(graph, exits, dist, exitRank));
+    }
+
+    /**
+     * Pick a next hop for every reached room after the fact, since concurrent
+     * relaxations cannot set one atomically with the key. A hop is any tight
+     * in-edge: one whose source has the same exit and a distance exactly one
+     * edge weight shorter.
+     */
+    private static int[] nextHops(CompiledRoomGraph graph, int[] exits, int[] dist, int[] exitRank) {
+        int n = graph.roomCount();
+        int[] nextHop = new int[n];
+        Arrays.fill(nextHop, -1);
+        boolean[] rooted = new boolean[n];
+        for (int exit : exits) rooted[exit] = true;
+
+        // 1) tight positive edges always lead to a strictly shorter distance
+        RoomList found = new RoomList();
+        for (int u = 0; u < n; u++) {
+            if (exitRank[u] == -1) continue;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.edgeTarget(e);
+                int weight = graph.edgeWeight(e);
+                if (weight > 0 && !rooted[v] && exitRank[v] == exitRank[u] && (long) dist[u] + weight == dist[v]) {
+                    nextHop[v] = u;
+                    rooted[v] = true;
+                }
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            if (rooted[u]) found.add(u);
+        }
+
+        // 2) zero-weight edges, spread only from rooms already rooted so hops never cycle
+        for (int i = 0; i < found.size; i++) {
+            int u = found.rooms[i];
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.edgeTarget(e);
+                if (graph.edgeWeight(e) == 0 && !rooted[v] && exitRank[v] == exitRank[u] && dist[v] == dist[u]) {
+                    nextHop[v] = u;
+                    rooted[v] = true;
+                    found.add(v);
+                }
+            }
+        }
+        return nextHop;
+    }
+
+    private static int meanWeight(CompiledRoomGraph graph) {
+        long sum = 0;
+        for (int e = 0; e < graph.edgeCount(); e++) sum += graph.edgeWeight(e);
+        return (int) Math.max(1, graph.edgeCount() == 0 ? 1 : sum / graph.edgeCount());
+    }
+
+    /**
+     * Relax the light or heavy edges of the given rooms, splitting large
+     * frontiers into pool tasks.
+     *
+     * @return rooms whose key was lowered, possibly with repeats
+     */
+    private RoomList relaxAll(Run run, RoomList rooms, boolean light) {
+        if (rooms.size <= SEQUENTIAL_THRESHOLD) return run.relax(rooms, 0, rooms.size, light);
+
+        int chunk = Math.max(SEQUENTIAL_THRESHOLD, rooms.size / (pool.getParallelism() * 4) + 1);
+        List<ForkJoinTask<RoomList>> tasks = new ArrayList<>();
+        for (int from = 0; from < rooms.size; from += chunk) {
+            int start = from;
+            int end = Math.min(from + chunk, rooms.size);
+            tasks.add(pool.submit(() -> run.relax(rooms, start, end, light)));
+        }
+        RoomList improved = new RoomList();
+        for (ForkJoinTask<RoomList> task : tasks) improved.addAll(task.join());
+        return improved;
+    }
+
+    /**
+     * State of one search.
+     */
+    private static class Run {
+        final CompiledRoomGraph graph;
+        final int delta;
+        final AtomicLongArray keys;
+        final boolean[] isExit;   // written before the first relaxation, then only read
+        final TreeMap<Integer, RoomList> buckets = new TreeMap<>();
+        final int[] seenStamp;    // room -> last frontier it was added to
+        final int[] settledIn;    // room -> last bucket it was settled in
+        int stamp;
+
+        Run(CompiledRoomGraph graph, int delta) {
+            this.graph = graph;
+            this.delta = delta;
+            int n = graph.roomCount();
+            keys = new AtomicLongArray(n);
+            for (int room = 0; room < n; room++) keys.set(room, Long.MAX_VALUE);
+            isExit = new boolean[n];
+            seenStamp = new int[n];
+            settledIn = new int[n];
+            Arrays.fill(settledIn, -1);
+        }
+
+        int bucketOf(int room) {
+            return DistanceQueue.distance(keys.get(room)) / delta;
+        }
+
+        /**
+         * File rooms into their buckets.
+         *
+         * @return the rooms that belong to {@code current}
+         */
+        RoomList distribute(RoomList rooms, int current) {
+            RoomList same = new RoomList();
+            for (int i = 0; i < rooms.size; i++) {
+                int room = rooms.rooms[i];
+                int bucket = bucketOf(room);
+                if (bucket == current) same.add(room);
+                else buckets.computeIfAbsent(bucket, b -> new RoomList()).add(room);
+            }
+            return same;
+        }
+
+        /**
+         * Drop repeats and rooms that have since moved to another bucket,
+         * recording the rest as settled in this bucket.
+         */
+        RoomList current(RoomList rooms, int bucket, RoomList settled) {
+            stamp++;
+            RoomList frontier = new RoomList();
+            for (int i = 0; i < rooms.size; i++) {
+                int room = rooms.rooms[i];
+                if (seenStamp[room] == stamp || bucketOf(room) != bucket) continue;
+                seenStamp[room] = stamp;
+                frontier.add(room);
+                if (settledIn[room] != bucket) {
+                    settledIn[room] = bucket;
+                    settled.add(room);
+                }
+            }
+            return frontier;
+        }
+
+        RoomList relax(RoomList rooms, int from, int to, boolean light) {
+            RoomList improved = new RoomList();
+            for (int i = from; i < to; i++) {
+                int u = rooms.rooms[i];
+                long key = keys.get(u);
+                int dist = DistanceQueue.distance(key);
+                int rank = DistanceQueue.rank(key);
+                for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                    int weight = graph.edgeWeight(e);
+                    if ((weight <= delta) != light) continue;
+                    long newDist = (long) dist + weight;
+                    if (newDist >= ExitDistances.UNREACHABLE) continue;
+
+                    int v = graph.edgeTarget(e);
+                    if (isExit[v]) continue;
+                    long newKey = DistanceQueue.key((int) newDist, rank);
+                    long old = keys.get(v);
+                    while (newKey < old) {
+                        if (keys.compareAndSet(v, old, newKey)) {
+                            improved.add(v);
+                            break;
+                        }
+                        old = keys.get(v);
+                    }
+                }
+            }
+            return improved;
+        }
+    }
+
+    /**
+     * Growable int list of room ids.
+     */
+    private static class RoomList {
+        int[] rooms = new int[16];
+        int size;
+
+        void add(int room) {
+            if (size == rooms.length) rooms = Arrays.copyOf(rooms, size * 2);
+            rooms[size++] = room;
+        }
+
+        void addAll(RoomList other) {
+            if (size + other.size > rooms.length) {
+                rooms = Arrays.copyOf(rooms, Math.max(rooms.length * 2, size + other.size));
+            }
+            System.arraycopy(other.rooms, 0, rooms, size, other.size);
+            size += other.size;
+        }
+    }
+}
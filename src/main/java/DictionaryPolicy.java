@@ -0,0 +1,26 @@
+/**
+ * What an LZW codebook does once it reaches its size limit.
+ */
+public enum DictionaryPolicy {
+    /**
+     * No limit: every step adds a pattern.
+     */
+    UNBOUNDED,
+
+    /**
+     * Stop adding patterns once full and keep using the ones learned so far.
+     */
+    FREEZE,
+
+    /**
+     * Emit a clear code and drop every learned pattern, keeping only the ones
+     * the codebook started with.
+     */
+    RESET,
+
+    /**
+     * Evict the least recently used learned pattern that no other learned
+     * pattern extends, and reuse its code for the new pattern.
+     */
+    LRU
+}
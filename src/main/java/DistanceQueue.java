@@ -0,0 +1,85 @@
+/**
+ * Priority queue of room ids for Dijkstra-style searches. Each room is queued
+ * at most once, so memory stays proportional to the number of rooms.
+ * <p>
+ * Keys pack a distance and an exit rank (see {@link #key}), so equal distances
+ * are broken by rank. Keys of a room never increase while it is queued.
+ */
+public interface DistanceQueue {
+    /**
+     * Bits reserved for the exit rank in the low end of a key.
+     */
+    int RANK_BITS = 31;
+
+    /**
+     * Weights up to this bound use a {@link BucketQueue}; larger ones an
+     * {@link IndexedMinHeap}.
+     */
+    int BUCKET_WEIGHT_LIMIT = 1 << 12;
+
+    /**
+     * Insert a room, or lower its key if it is already queued.
+     *
+     * @param room room id
+     * @param key  new key, no larger than the room's current key
+     */
+    void update(int room, long key);
+
+    /**
+     * @return true if no room is queued
+     */
+    boolean isEmpty();
+
+    /**
+     * Remove the queued room with the smallest key.
+     *
+     * @return the removed room id
+     */
+    int poll();
+
+    /**
+     * Remove every room, keeping the allocated storage.
+     */
+    void clear();
+
+    /**
+     * Pack a distance and an exit rank into one key ordering by distance first.
+     *
+     * @param dist non-negative distance
+     * @param rank non-negative exit rank
+     * @return the packed key
+     */
+    static long key(int dist, int rank) {
+        return ((long) dist << RANK_BITS) | rank;
+    }
+
+    /**
+     * @param key packed key
+     * @return the distance part of the key
+     */
+    static int distance(long key) {
+        return (int) (key >>> RANK_BITS);
+    }
+
+    /**
+     * @param key packed key
+     * @return the exit rank part of the key
+     */
+    static int rank(long key) {
+        return (int) (key & ((1L << RANK_BITS) - 1));
+    }
+
+    /**
+     * Pick the queue suited to a graph: Dial's bucket queue when the largest
+     * edge weight is small, otherwise an indexed binary heap.
+     *
+     * @param graph graph the search runs on
+     * @return an empty queue sized for the graph's rooms
+     */
+    static DistanceQueue forGraph(CompiledRoomGraph graph) {
+        if (graph.maxWeight() <= BUCKET_WEIGHT_LIMIT) {
+            return new BucketQueue(graph.roomCount(), graph.maxWeight());
+        }
+        return new IndexedMinHeap(graph.roomCount());
+    }
+}
@@ -0,0 +1,384 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nearest-exit index that stays current as doors open and close and exits are
+ * added or blocked. Each update repairs only the rooms whose nearest exit or
+ * distance can change, in the style of Ramalingam and Reps:
+ * <ul>
+ * <li>a shorter edge or a new exit starts a Dijkstra from the improved room
+ * that only visits rooms it improves;</li>
+ * <li>a longer or removed edge, or a removed exit, only affects the rooms whose
+ * shortest-path tree runs through it. Those rooms are reset, re-seeded from
+ * their unaffected neighbours and settled by a Dijkstra limited to them.</li>
+ * </ul>
+ * Queries read per-room arrays and cost O(1).
+ * <p>
+ * There is at most one edge per ordered pair of rooms; parallel edges in the
+ * source map keep the lowest weight. Ties between exits at the same distance go
+ * to the exit that has been an exit longest (initial exits in list order). As
+ * in {@link ExitDistances}, an exit is always its own nearest exit and no edge
+ * into an exit is relaxed.
+ */
+public class DynamicExitIndex {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Integer> exitsByRank = new ArrayList<>();
+
+    private Adjacency[] out = new Adjacency[0];
+    private Adjacency[] in = new Adjacency[0];
+    private int[] dist = new int[0];
+    private int[] rank = new int[0];      // exit rank of the nearest exit, or -1
+    private int[] parent = new int[0];    // predecessor on the shortest path, or -1
+    private int[] ownRank = new int[0];   // rank if the room is an exit, else -1
+    private boolean[] listed = new boolean[0]; // a key of the source map, or the source of a set edge
+    private boolean[] marked = new boolean[0];
+    private IndexedMinHeap queue = new IndexedMinHeap(0);
+    private int lastRepairSize;
+
+    /**
+     * Build the index with one full search.
+     *
+     * @param roomGraph map from room name to its weighted outgoing edges
+     * @param exitRooms exit room names, in tie-breaking order
+     * @throws IllegalArgumentException if an edge has a negative weight
+     */
+    public DynamicExitIndex(Map<String, List<Edge>> roomGraph, List<String> exitRooms) {
+        for (Map.Entry<String, List<Edge>> entry : roomGraph.entrySet()) {
+            int from = room(entry.getKey());
+            listed[from] = true;
+            if (entry.getValue() == null) continue;
+            for (Edge edge : entry.getValue()) {
+                checkWeight(edge.weight);
+                int to = room(edge.to);
+                int i = out[from].indexOf(to);
+                if (i == -1) link(from, to, edge.weight);
+                else if (edge.weight < out[from].weights[i]) reweight(from, to, i, edge.weight);
+            }
+        }
+        // create every exit room before queueing any, since growing replaces the queue
+        int[] exits = new int[exitRooms.size()];
+        for (int i = 0; i < exits.length; i++) exits[i] = room(exitRooms.get(i));
+        for (int room : exits) {
+            if (ownRank[room] == -1) {
+                seedExit(room);
+                settle(room, 0, ownRank[room], -1);
+            }
+        }
+        lastRepairSize = propagate();
+    }
+
+    /**
+     * Add an edge, or change the weight of an existing one.
+     *
+     * @param from   source room, created if unknown
+     * @param to     target room, created if unknown
+     * @param weight non-negative traversal cost
+     */
+    public void setEdge(String from, String to, int weight) {
+        checkWeight(weight);
+        int u = room(from);
+        int v = room(to);
+        listed[u] = true;
+        int i = out[u].indexOf(v);
+        if (i == -1) {
+            link(u, v, weight);
+            lastRepairSize = relax(u, v, weight) ? propagate() : 0;
+            return;
+        }
+        int old = out[u].weights[i];
+        reweight(u, v, i, weight);
+        if (weight < old) {
+            lastRepairSize = relax(u, v, weight) ? propagate() : 0;
+        } else if (weight > old && parent[v] == u) {
+            lastRepairSize = repair(v);
+        } else {
+            lastRepairSize = 0;
+        }
+    }
+
+    /**
+     * Remove an edge.
+     *
+     * @param from source room
+     * @param to   target room
+     * @return false if the edge did not exist
+     */
+    public boolean removeEdge(String from, String to) {
+        Integer u = ids.get(from);
+        Integer v = ids.get(to);
+        int i = u == null || v == null ? -1 : out[u].indexOf(v);
+        if (i == -1) return false;
+
+        out[u].removeAt(i);
+        in[v].removeAt(in[v].indexOf(u));
+        lastRepairSize = parent[v] == u ? repair(v) : 0;
+        return true;
+    }
+
+    /**
+     * Make a room an exit. It loses ties to every exit added before it.
+     *
+     * @param exit room name, created if unknown
+     */
+    public void addExit(String exit) {
+        int room = room(exit);
+        if (ownRank[room] != -1) {
+            lastRepairSize = 0;
+            return;
+        }
+        boolean reachedFree = dist[room] == 0; // from an older exit, which would keep it on the tie
+        seedExit(room);
+        if (reachedFree) {
+            lastRepairSize = repair(room);
+        } else {
+            settle(room, 0, ownRank[room], -1);
+            lastRepairSize = propagate();
+        }
+    }
+
+    /**
+     * Stop treating a room as an exit.
+     *
+     * @param exit room name
+     * @return false if the room was not an exit
+     */
+    public boolean removeExit(String exit) {
+        Integer room = ids.get(exit);
+        if (room == null || ownRank[room] == -1) return false;
+
+        ownRank[room] = -1;
+        lastRepairSize = repair(room);
+        return true;
+    }
+
+    /**
+     * @param room room name
+     * @return the room's ExitInfo, or null if the room is unknown
+     */
+    public ExitInfo info(String room) {
+        Integer id = ids.get(room);
+        return id == null ? null : info(id);
+    }
+
+    /**
+     * @param room room name
+     * @return distance to the nearest exit, or Integer.MAX_VALUE if none is
+     *         reachable or the room is unknown
+     */
+    public int distance(String room) {
+        Integer id = ids.get(room);
+        return id == null ? ExitDistances.UNREACHABLE : dist[id];
+    }
+
+    /**
+     * Like {@link ExitDistances#toMap}, rooms that were only ever edge targets
+     * or exits are left out.
+     *
+     * @return ExitInfo for every key of the source map and every room an edge
+     *         was set from
+     */
+    public Map<String, ExitInfo> toMap() {
+        Map<String, ExitInfo> result = new HashMap<>();
+        for (int room = 0; room < names.size(); room++) {
+            if (listed[room]) result.put(names.get(room), info(room));
+        }
+        return result;
+    }
+
+    /**
+     * @return number of rooms the index knows
+     */
+    public int roomCount() {
+        return names.size();
+    }
+
+    /**
+     * @return number of rooms settled by the last update (or by the initial
+     *         build), a measure of how far the repair spread
+     */
+    public int lastRepairSize() {
+        return lastRepairSize;
+    }
+
+    private ExitInfo info(int room) {
+        String exit = rank[room] == -1 ? null : names.get(exitsByRank.get(rank[room]));
+        return new ExitInfo(exit, dist[room]);
+    }
+
+    private long key(int room) {
+        return rank[room] == -1 ? Long.MAX_VALUE : DistanceQueue.key(dist[room], rank[room]);
+    }
+
+    private void seedExit(int room) {
+        ownRank[room] = exitsByRank.size();
+        exitsByRank.add(room);
+    }
+
+    /**
+     * Offer the path through edge u -> v to v.
+     *
+     * @return true if v improved and was queued
+     */
+    private boolean relax(int u, int v, int weight) {
+        if (rank[u] == -1 || ownRank[v] != -1) return false;
+        long newDist = (long) dist[u] + weight;
+        if (newDist >= ExitDistances.UNREACHABLE) return false;
+        if (DistanceQueue.key((int) newDist, rank[u]) >= key(v)) return false;
+        settle(v, (int) newDist, rank[u], u);
+        return true;
+    }
+
+    private void settle(int room, int d, int r, int from) {
+        dist[room] = d;
+        rank[room] = r;
+        parent[room] = from;
+        queue.update(room, DistanceQueue.key(d, r));
+    }
+
+    /**
+     * Run Dijkstra from the queued rooms, visiting only rooms that improve.
+     *
+     * @return number of rooms polled
+     */
+    private int propagate() {
+        int polled = 0;
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            polled++;
+            Adjacency edges = out[u];
+            for (int i = 0; i < edges.size; i++) {
+                relax(u, edges.rooms[i], edges.weights[i]);
+            }
+        }
+        return polled;
+    }
+
+    /**
+     * Recompute the rooms whose shortest path ran through {@code root}, after
+     * that path became longer or disappeared.
+     *
+     * @return number of rooms polled
+     */
+    private int repair(int root) {
+        // 1) collect root's subtree in the shortest-path tree
+        int[] affected = new int[16];
+        int count = 0;
+        affected[count++] = root;
+        marked[root] = true;
+        for (int i = 0; i < count; i++) {
+            int x = affected[i];
+            Adjacency edges = out[x];
+            for (int e = 0; e < edges.size; e++) {
+                int y = edges.rooms[e];
+                if (parent[y] != x || marked[y]) continue;
+                if (count == affected.length) affected = Arrays.copyOf(affected, count * 2);
+                affected[count++] = y;
+                marked[y] = true;
+            }
+        }
+
+        // 2) forget their distances
+        for (int i = 0; i < count; i++) {
+            int x = affected[i];
+            dist[x] = ExitDistances.UNREACHABLE;
+            rank[x] = -1;
+            parent[x] = -1;
+        }
+
+        // 3) re-seed each from its own exit or its best unaffected neighbour
+        for (int i = 0; i < count; i++) {
+            int x = affected[i];
+            if (ownRank[x] != -1) settle(x, 0, ownRank[x], -1);
+            Adjacency edges = in[x];
+            for (int e = 0; e < edges.size; e++) {
+                if (!marked[edges.rooms[e]]) relax(edges.rooms[e], x, edges.weights[e]);
+            }
+        }
+        for (int i = 0; i < count; i++) marked[affected[i]] = false;
+
+        // 4) settle the affected region
+        return propagate();
+    }
+
+    private static void checkWeight(int weight) {
+        if (weight < 0) throw new IllegalArgumentException("negative edge weight: " + weight);
+    }
+
+    private void link(int from, int to, int weight) {
+        out[from].add(to, weight);
+        in[to].add(from, weight);
+    }
+
+    private void reweight(int from, int to, int outIndex, int weight) {
+        out[from].weights[outIndex] = weight;
+        in[to].weights[in[to].indexOf(from)] = weight;
+    }
+
+    /**
+     * Look up a room id, adding the room if it is new.
+     */
+    private int room(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+
+        int room = names.size();
+        if (room == dist.length) grow(Math.max(16, room * 2));
+        ids.put(name, room);
+        names.add(name);
+        out[room] = new Adjacency();
+        in[room] = new Adjacency();
+        dist[room] = ExitDistances.UNREACHABLE;
+        rank[room] = -1;
+        parent[room] = -1;
+        ownRank[room] = -1;
+        return room;
+    }
+
+    private void grow(int capacity) {
+        out = Arrays.copyOf(out, capacity);
+        in = Arrays.copyOf(in, capacity);
+        dist = Arrays.copyOf(dist, capacity);
+        rank = Arrays.copyOf(rank, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        ownRank = Arrays.copyOf(ownRank, capacity);
+        listed = Arrays.copyOf(listed, capacity);
+        marked = Arrays.copyOf(marked, capacity);
+        queue = new IndexedMinHeap(capacity); // only ever grown between updates, when it is empty
+    }
+
+    /**
+     * Growable list of (room, weight) pairs for one room's in- or out-edges.
+     */
+    private static class Adjacency {
+        int[] rooms = new int[2];
+        int[] weights = new int[2];
+        int size;
+
+        void add(int room, int weight) {
+            if (size == rooms.length) {
+                rooms = Arrays.copyOf(rooms, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            rooms[size] = room;
+            weights[size] = weight;
+            size++;
+        }
+
+        int indexOf(int room) {
+            for (int i = 0; i < size; i++) {
+                if (rooms[i] == room) return i;
+            }
+            return -1;
+        }
+
+        void removeAt(int i) {
+            size--;
+            rooms[i] = rooms[size];
+            weights[i] = weights[size];
+        }
+    }
+}
@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of closest-exit results keyed by graph version and exit list.
+ * Repeated calls with the same graph and exits return the stored map without
+ * searching or copying. Stored maps are unmodifiable and shared, so callers
+ * must not change the ExitInfo objects in them.
+ * <p>
+ * The graph version is either supplied by the caller, who bumps it whenever the
+ * graph changes, or a 128-bit content fingerprint of the adjacency map. The
+ * fingerprint still walks the map, but that is much cheaper than a search.
+ * Room names are hashed from their characters, not String.hashCode, so names
+ * with equal hash codes do not make graphs collide; two different graphs
+ * sharing all 128 bits is not guarded against.
+ * <p>
+ * Entries are weighted by their number of rooms. Once the total weight passes
+ * the limit, least recently used entries are evicted. Reads never lock; two
+ * threads missing on the same key at once may both compute it.
+ */
+public class ExitDistanceCache {
+    private static final long SEED_HIGH = 0xcbf29ce484222325L; // fingerprint halves
+    private static final long SEED_LOW = 0x84222325cbf29ce4L;
+
+    private final long maxWeight;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long totalWeight; // guarded by this
+
+    /**
+     * @param maxWeight total number of rooms the cached results may hold
+     */
+    public ExitDistanceCache(long maxWeight) {
+        if (maxWeight <= 0) throw new IllegalArgumentException("maxWeight must be positive");
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Look up or compute closest exits, using a content fingerprint as the
+     * graph version.
+     *
+     * @param roomGraph map from room name to its weighted outgoing edges
+     * @param exitRooms exit room names, in tie-breaking order
+     * @return an unmodifiable map from each room to its ExitInfo
+     */
+    public Map<String, ExitInfo> computeClosestExits(Map<String, List<Edge>> roomGraph, List<String> exitRooms) {
+        return lookup(fingerprintKey(roomGraph, exitRooms), roomGraph, exitRooms);
+    }
+
+    /**
+     * Look up or compute closest exits for a graph version the caller tracks.
+     *
+     * @param graphVersion version that changes whenever the graph changes
+     * @param roomGraph    map from room name to its weighted outgoing edges
+     * @param exitRooms    exit room names, in tie-breaking order
+     * @return an unmodifiable map from each room to its ExitInfo
+     */
+    public Map<String, ExitInfo> computeClosestExits(long graphVersion, Map<String, List<Edge>> roomGraph,
+                                                     List<String> exitRooms) {
+        return lookup(new Key(graphVersion, 0, false, exitRooms), roomGraph, exitRooms);
+    }
+
+    /**
+     * @param key lookup key over the caller's exit list, copied only when stored
+     */
+    private Map<String, ExitInfo> lookup(Key key, Map<String, List<Edge>> roomGraph, List<String> exitRooms) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastAccess = clock.incrementAndGet();
+            hits.increment();
+            return entry.result;
+        }
+
+        misses.increment();
+        CompiledRoomGraph graph = CompiledRoomGraph.compile(roomGraph);
+        Map<String, ExitInfo> result = Collections.unmodifiableMap(ExitDistances.compute(graph, exitRooms).toMap());
+        if (result.size() > maxWeight) return result; // would never fit
+
+        Key stored = key.stored();
+        Entry created = new Entry(result, clock.incrementAndGet());
+        Entry raced = entries.putIfAbsent(stored, created);
+        if (raced != null) return raced.result;
+        admit(stored, created);
+        return result;
+    }
+
+    /**
+     * Drop every entry of one graph version.
+     *
+     * @param graphVersion version passed to, or fingerprint used by, earlier calls
+     */
+    public synchronized void invalidate(long graphVersion) {
+        entries.entrySet().removeIf(e -> {
+            if (e.getKey().version != graphVersion) return false;
+            if (e.getValue().admitted) totalWeight -= e.getValue().result.size();
+            return true;
+        });
+    }
+
+    /**
+     * Drop every entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return total number of rooms held by cached results
+     */
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    /**
+     * Order-independent fingerprint of an adjacency map: the half of the
+     * 128-bit fingerprint that versions entries, as {@link #invalidate} takes.
+     * Edge order within a room counts; entry order of the map does not.
+     *
+     * @param roomGraph map from room name to its weighted outgoing edges
+     * @return the fingerprint
+     */
+    public static long fingerprint(Map<String, List<Edge>> roomGraph) {
+        return fingerprintKey(roomGraph, Collections.emptyList()).version;
+    }
+
+    /**
+     * Both fingerprint halves in one walk, from independently seeded hashes.
+     */
+    private static Key fingerprintKey(Map<String, List<Edge>> roomGraph, List<String> exitRooms) {
+        long high = roomGraph.size();
+        long low = roomGraph.size();
+        for (Map.Entry<String, List<Edge>> entry : roomGraph.entrySet()) {
+            long a = hash(entry.getKey(), SEED_HIGH);
+            long b = hash(entry.getKey(), SEED_LOW);
+            if (entry.getValue() != null) {
+                for (Edge edge : entry.getValue()) {
+                    a = mix(mix(a * 31 + hash(edge.to, SEED_HIGH)) * 31 + edge.weight);
+                    b = mix(mix(b * 31 + hash(edge.to, SEED_LOW)) * 31 + edge.weight);
+                }
+            }
+            high += mix(a);
+            low += mix(b);
+        }
+        return new Key(high, low, true, exitRooms);
+    }
+
+    /**
+     * FNV-1a over the characters of a name, then mixed.
+     */
+    private static long hash(String name, long seed) {
+        long h = seed;
+        for (int i = 0; i < name.length(); i++) h = (h ^ name.charAt(i)) * 0x100000001b3L;
+        return mix(h);
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Account for a new entry and evict least recently used ones while over
+     * the weight limit.
+     */
+    private synchronized void admit(Key key, Entry created) {
+        if (entries.get(key) != created) return; // invalidated meanwhile
+        created.admitted = true;
+        totalWeight += created.result.size();
+        while (totalWeight > maxWeight) {
+            Map.Entry<Key, Entry> oldest = null;
+            for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                if (oldest == null || e.getValue().lastAccess < oldest.getValue().lastAccess) oldest = e;
+            }
+            if (oldest == null) break;
+            entries.remove(oldest.getKey());
+            if (oldest.getValue().admitted) totalWeight -= oldest.getValue().result.size();
+            evictions.increment();
+        }
+    }
+
+    private static final class Key {
+        final long version;       // caller version, or the high fingerprint half
+        final long check;         // low fingerprint half, 0 for caller versions
+        final boolean fingerprinted;
+        final List<String> exits;
+
+        Key(long version, long check, boolean fingerprinted, List<String> exits) {
+            this.version = version;
+            this.check = check;
+            this.fingerprinted = fingerprinted;
+            this.exits = exits;
+        }
+
+        /**
+         * @return this key over its own copy of the exits, safe to keep
+         */
+        Key stored() {
+            return new Key(version, check, fingerprinted, new ArrayList<>(exits));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return version == other.version && check == other.check && fingerprinted == other.fingerprinted
+                    && exits.equals(other.exits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(version) * 31 + exits.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Map<String, ExitInfo> result;
+        volatile long lastAccess;
+        boolean admitted; // counted in totalWeight, guarded by the cache
+
+        Entry(Map<String, ExitInfo> result, long lastAccess) {
+            this.result = result;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
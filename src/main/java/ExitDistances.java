@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nearest-exit distances for every room of a {@link CompiledRoomGraph}, found by
+ * one multi-source Dijkstra seeded with all exits at distance 0.
+ * Results are kept in primitive arrays indexed by room id. Ties between exits at
+ * the same distance go to the exit listed first. Exits are fixed: an exit is
+ * always its own nearest exit at distance 0, and a route ends at the first exit
+ * it reaches, so no edge into an exit is relaxed.
+ * <p>
+ * Each room also records its next hop toward its nearest exit, the room whose
+ * edge improved it last, so full routes can be read off without another search.
+ * The search follows edges from the exits outward, so a route walks them
+ * backwards; on a graph with doors in both directions it is the robot's way out.
+ */
+public class ExitDistances {
+    /**
+     * Distance reported for rooms that cannot reach any exit.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final CompiledRoomGraph graph;
+    private final int[] exits;    // exit room ids, in tie-breaking order
+    private final int[] dist;     // per room, UNREACHABLE if no exit reaches it
+    private final int[] exitRank; // per room, index into exits or -1
+    private final int[] nextHop;  // per room, next room toward its exit or -1
+
+    ExitDistances(CompiledRoomGraph graph, int[] exits, int[] dist, int[] exitRank, int[] nextHop) {
+        this.graph = graph;
+        this.exits = exits;
+        this.dist = dist;
+        this.exitRank = exitRank;
+        this.nextHop = nextHop;
+    }
+
+    /**
+     * Run the multi-source search with the queue suited to the graph.
+     *
+     * @param graph     compiled room graph
+     * @param exitRooms exit room names; names not in the graph are ignored
+     * @return distances and nearest exits for every room
+     */
+    public static ExitDistances compute(CompiledRoomGraph graph, List<String> exitRooms) {
+        return compute(graph, exitRooms, DistanceQueue.forGraph(graph));
+    }
+
+    /**
+     * Run the multi-source search.
+     *
+     * @param graph     compiled room graph
+     * @param exitRooms exit room names; names not in the graph are ignored
+     * @param queue     empty queue sized for the graph's rooms
+     * @return distances and nearest exits for every room
+     */
+    public static ExitDistances compute(CompiledRoomGraph graph, List<String> exitRooms, DistanceQueue queue) {
+        int[] exits = exitIds(graph, exitRooms);
+        int n = graph.roomCount();
+        int[] dist = new int[n];
+        int[] exitRank = new int[n];
+        int[] nextHop = new int[n];
+        Arrays.fill(dist, UNREACHABLE);
+        Arrays.fill(exitRank, -1);
+        Arrays.fill(nextHop, -1);
+
+        boolean[] isExit = new boolean[n];
+        for (int rank = 0; rank < exits.length; rank++) {
+            dist[exits[rank]] = 0;
+            exitRank[exits[rank]] = rank;
+            isExit[exits[rank]] = true;
+            queue.update(exits[rank], DistanceQueue.key(0, rank));
+        }
+
+        while (!queue.isEmpty()) {
+            int room = queue.poll();
+            for (int e = graph.edgeStart(room); e < graph.edgeEnd(room); e++) {
+                int next = graph.edgeTarget(e);
+                long newDist = (long) dist[room] + graph.edgeWeight(e);
+                if (isExit[next] || newDist >= UNREACHABLE) continue;
+
+                long newKey = DistanceQueue.key((int) newDist, exitRank[room]);
+                if (dist[next] == UNREACHABLE || newKey < DistanceQueue.key(dist[next], exitRank[next])) {
+                    dist[next] = (int) newDist;
+                    exitRank[next] = exitRank[room];
+                    nextHop[next] = room;
+                    queue.update(next, newKey);
+                }
+            }
+        }
+        return new ExitDistances(graph, exits, dist, exitRank, nextHop);
+    }
+
+    /**
+     * Resolve exit names to room ids, dropping unknown names and repeats.
+     *
+     * @param graph     compiled room graph
+     * @param exitRooms exit room names in tie-breaking order
+     * @return exit room ids in the same order
+     */
+    static int[] exitIds(CompiledRoomGraph graph, List<String> exitRooms) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String exit : exitRooms) {
+            int id = graph.id(exit);
+            if (id != -1) ids.add(id);
+        }
+        int[] exits = new int[ids.size()];
+        int i = 0;
+        for (int id : ids) exits[i++] = id;
+        return exits;
+    }
+
+    /**
+     * @return the graph these distances belong to
+     */
+    public CompiledRoomGraph graph() {
+        return graph;
+    }
+
+    /**
+     * @param room room id
+     * @return distance to the nearest exit, or {@link #UNREACHABLE}
+     */
+    public int distance(int room) {
+        return dist[room];
+    }
+
+    /**
+     * @param room room id
+     * @return room id of the nearest exit, or -1 if none is reachable
+     */
+    public int nearestExit(int room) {
+        return exitRank[room] == -1 ? -1 : exits[exitRank[room]];
+    }
+
+    /**
+     * @param room room id
+     * @return the room's ExitInfo, with a null exit if none is reachable
+     */
+    public ExitInfo info(int room) {
+        int exit = nearestExit(room);
+        return new ExitInfo(exit == -1 ? null : graph.name(exit), dist[room]);
+    }
+
+    /**
+     * @return ExitInfo for every room that was a key of the source map
+     */
+    public Map<String, ExitInfo> toMap() {
+        Map<String, ExitInfo> result = new HashMap<>();
+        for (int room = 0; room < graph.listedRooms(); room++) {
+            result.put(graph.name(room), info(room));
+        }
+        return result;
+    }
+
+    /**
+     * @param room room id
+     * @return the next room on the way to the nearest exit, or -1 for exits
+     *         and rooms that reach none
+     */
+    public int nextHop(int room) {
+        return nextHop[room];
+    }
+
+    /**
+     * Follow next hops from a room to its nearest exit.
+     *
+     * @param room room id
+     * @return room ids from {@code room} to the exit, both included; empty if
+     *         no exit is reachable
+     */
+    public int[] routeIds(int room) {
+        if (exitRank[room] == -1) return new int[0];
+        int length = 1;
+        for (int r = nextHop[room]; r != -1; r = nextHop[r]) length++;
+        int[] route = new int[length];
+        int i = 0;
+        for (int r = room; r != -1; r = nextHop[r]) route[i++] = r;
+        return route;
+    }
+
+    /**
+     * Follow next hops from a room to its nearest exit.
+     *
+     * @param room room name
+     * @return room names from {@code room} to the exit, both included; empty if
+     *         the room is unknown or no exit is reachable
+     */
+    public List<String> route(String room) {
+        int id = graph.id(room);
+        if (id == -1) return Collections.emptyList();
+        int[] ids = routeIds(id);
+        List<String> route = new ArrayList<>(ids.length);
+        for (int r : ids) route.add(graph.name(r));
+        return route;
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lower bound on a room's distance to its nearest exit, used by
+ * {@link ExitRouter} to steer its search. Bounds must never overestimate.
+ * Consistent bounds, where {@code bound(c) <= w + bound(p)} for every edge
+ * {@code p -> c} of weight {@code w}, also never make the search revisit a room.
+ * A bound of {@link ExitDistances#UNREACHABLE} promises no exit is reachable.
+ */
+public interface ExitHeuristic {
+    /**
+     * @param room room id
+     * @return a non-negative lower bound on the room's nearest-exit distance
+     */
+    int lowerBound(int room);
+
+    /**
+     * @return the heuristic that knows nothing, turning A* into Dijkstra
+     */
+    static ExitHeuristic none() {
+        return room -> 0;
+    }
+
+    /**
+     * Exact distances from an earlier search. They remain a consistent lower
+     * bound after doors close or get slower, as long as no exit or edge was
+     * added and no edge got cheaper, and turn A* into a walk along the
+     * shortest route. Rooms the earlier graph did not have get bound 0.
+     *
+     * @param earlier distances computed before the graph changed
+     * @param graph   the graph as it is now
+     * @return the heuristic
+     */
+    static ExitHeuristic previous(ExitDistances earlier, CompiledRoomGraph graph) {
+        CompiledRoomGraph old = earlier.graph();
+        int[] bound = new int[graph.roomCount()];
+        for (int room = 0; room < bound.length; room++) {
+            int id = old == graph ? room : old.id(graph.name(room));
+            bound[room] = id == -1 ? 0 : earlier.distance(id);
+        }
+        return room -> bound[room];
+    }
+
+    /**
+     * Straight-line bound from room coordinates.
+     *
+     * @param graph       compiled room graph
+     * @param positions   (x, y) of every room in the graph
+     * @param costPerUnit lower bound on edge weight per unit of straight-line
+     *                    length; every edge must cost at least this times its length
+     * @param exitRooms   exit room names
+     * @return the heuristic
+     * @throws IllegalArgumentException if a room has no position
+     */
+    static ExitHeuristic coordinates(CompiledRoomGraph graph, Map<String, double[]> positions,
+                                     double costPerUnit, List<String> exitRooms) {
+        int n = graph.roomCount();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int room = 0; room < n; room++) {
+            double[] position = positions.get(graph.name(room));
+            if (position == null) {
+                throw new IllegalArgumentException("no position for room " + graph.name(room));
+            }
+            x[room] = position[0];
+            y[room] = position[1];
+        }
+        int[] exits = ExitDistances.exitIds(graph, exitRooms);
+        return room -> {
+            double best = Double.MAX_VALUE;
+            for (int exit : exits) {
+                best = Math.min(best, Math.hypot(x[room] - x[exit], y[room] - y[exit]));
+            }
+            return exits.length == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, Math.floor(best * costPerUnit));
+        };
+    }
+
+    /**
+     * ALT (A*, landmarks, triangle inequality) bound. For a landmark {@code L},
+     * every exit {@code x} satisfies {@code d(x, room) >= d(x, L) - d(room, L)},
+     * so {@code D(L) - d(room, L)} bounds the room's distance, where {@code D}
+     * is the multi-source exit distance. The bound is tight for rooms on the way
+     * from the exits to a landmark, so landmarks are spread out by farthest-first
+     * selection: each one is the room farthest from the exits and from the
+     * landmarks already chosen.
+     *
+     * @param distances multi-source distances for the graph and exits
+     * @param count     number of landmarks
+     * @return the heuristic
+     */
+    static ExitHeuristic landmarks(ExitDistances distances, int count) {
+        CompiledRoomGraph graph = distances.graph();
+        CompiledRoomGraph reversed = graph.reversed();
+        int n = graph.roomCount();
+
+        // spread[v] = distance from v to the exits or to the nearest chosen landmark
+        int[] spread = new int[n];
+        for (int room = 0; room < n; room++) spread[room] = reach(distances, room);
+
+        int[] exitDistance = new int[count];
+        int[][] toLandmark = new int[count][];
+        int k = 0;
+        while (k < count) {
+            int landmark = -1;
+            for (int room = 0; room < n; room++) {
+                if (spread[room] > 0 && (landmark == -1 || spread[room] > spread[landmark])) landmark = room;
+            }
+            if (landmark == -1) break;
+
+            // distances to a landmark are distances from it in the reversed graph
+            ExitDistances from = ExitDistances.compute(reversed, Collections.singletonList(graph.name(landmark)));
+            exitDistance[k] = distances.distance(landmark);
+            toLandmark[k] = new int[n];
+            for (int room = 0; room < n; room++) {
+                toLandmark[k][room] = from.distance(room);
+                spread[room] = Math.min(spread[room], from.distance(room));
+            }
+            k++;
+        }
+
+        int landmarks = k;
+        return room -> {
+            long best = 0;
+            for (int i = 0; i < landmarks; i++) {
+                if (toLandmark[i][room] != ExitDistances.UNREACHABLE) {
+                    best = Math.max(best, (long) exitDistance[i] - toLandmark[i][room]);
+                }
+            }
+            return (int) best;
+        };
+    }
+
+    /**
+     * Exit distance for ranking landmark candidates; unreachable rooms last.
+     */
+    private static int reach(ExitDistances distances, int room) {
+        int d = distances.distance(room);
+        return d == ExitDistances.UNREACHABLE ? -1 : d;
+    }
+}
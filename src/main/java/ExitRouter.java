@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single-room nearest-exit queries by A*. The search starts at the room and
+ * walks edges backwards toward the exit set, ordered by distance so far plus an
+ * {@link ExitHeuristic} bound, and stops as soon as the nearest exit is known.
+ * With a good bound it touches a small corridor of the graph instead of every
+ * room. Bounds only need to be admissible; inconsistent ones may reopen rooms.
+ * <p>
+ * Answers match {@link ExitDistances}, including ties going to the exit listed
+ * first and routes ending at the first exit they reach, so the search does not
+ * expand past an exit. Per-query state is reset lazily, so a query costs only what it visits.
+ * Queries are synchronized.
+ */
+public class ExitRouter {
+    private final CompiledRoomGraph graph;
+    private final CompiledRoomGraph reversed;
+    private final int[] exits;
+    private final int[] exitRank;   // room -> rank if it is an exit, else -1
+    private final ExitHeuristic heuristic;
+
+    private final IndexedMinHeap queue;
+    private final int[] cost;       // distance from the queried room, valid if stamp matches
+    private final int[] cameFrom;   // previous room on the way back to the queried room
+    private final int[] stamp;
+    private int query;
+    private int lastSettled;
+
+    /**
+     * @param graph     compiled room graph
+     * @param exitRooms exit room names, in tie-breaking order
+     * @param heuristic lower bound on exit distance
+     */
+    public ExitRouter(CompiledRoomGraph graph, List<String> exitRooms, ExitHeuristic heuristic) {
+        this.graph = graph;
+        this.reversed = graph.reversed();
+        this.exits = ExitDistances.exitIds(graph, exitRooms);
+        this.heuristic = heuristic;
+        int n = graph.roomCount();
+        exitRank = new int[n];
+        Arrays.fill(exitRank, -1);
+        for (int rank = 0; rank < exits.length; rank++) exitRank[exits[rank]] = rank;
+        queue = new IndexedMinHeap(n);
+        cost = new int[n];
+        cameFrom = new int[n];
+        stamp = new int[n];
+    }
+
+    /**
+     * @param room room name
+     * @return the room's ExitInfo, or null if the room is not in the graph
+     */
+    public synchronized ExitInfo query(String room) {
+        int id = graph.id(room);
+        if (id == -1) return null;
+        int exit = search(id);
+        return exit == -1 ? new ExitInfo(null, ExitDistances.UNREACHABLE) : new ExitInfo(graph.name(exit), cost[exit]);
+    }
+
+    /**
+     * @param room room name
+     * @return room names from {@code room} to its nearest exit, both included;
+     *         empty if the room is unknown or no exit is reachable
+     */
+    public synchronized List<String> route(String room) {
+        int id = graph.id(room);
+        if (id == -1) return Collections.emptyList();
+        int exit = search(id);
+        List<String> route = new ArrayList<>();
+        for (int r = exit; r != -1; r = cameFrom[r]) route.add(graph.name(r));
+        Collections.reverse(route);
+        return route;
+    }
+
+    /**
+     * @return number of rooms the last query settled
+     */
+    public synchronized int lastSettled() {
+        return lastSettled;
+    }
+
+    /**
+     * Run A* from a room.
+     *
+     * @return the nearest exit, or -1 if none is reachable
+     */
+    private int search(int start) {
+        reset();
+        lastSettled = 0;
+        visit(start, 0, -1);
+
+        int best = -1;
+        long bestKey = Long.MAX_VALUE;
+        while (!queue.isEmpty()) {
+            int room = queue.poll();
+            lastSettled++;
+            int g = cost[room];
+            long f = (long) g + heuristic.lowerBound(room);
+            if (best != -1 && f > cost[best]) break; // no exit at the best distance is left
+
+            if (exitRank[room] != -1) {
+                long key = DistanceQueue.key(g, exitRank[room]);
+                if (key < bestKey) {
+                    best = room;
+                    bestKey = key;
+                }
+                continue;
+            }
+            for (int e = reversed.edgeStart(room); e < reversed.edgeEnd(room); e++) {
+                int next = reversed.edgeTarget(e);
+                long newCost = (long) g + reversed.edgeWeight(e);
+                if (newCost >= ExitDistances.UNREACHABLE) continue;
+                // a lower cost reopens a settled room, which only happens with inconsistent bounds
+                if (stamp[next] != query || newCost < cost[next]) visit(next, (int) newCost, room);
+            }
+        }
+        return best;
+    }
+
+    private void visit(int room, int g, int from) {
+        stamp[room] = query;
+        cost[room] = g;
+        cameFrom[room] = from;
+        int h = heuristic.lowerBound(room);
+        if (h == ExitDistances.UNREACHABLE) return; // the bound says no exit is reachable
+        long f = Math.min((long) g + h, ExitDistances.UNREACHABLE);
+        // f first; among equal f, larger g, which dives along routes the bound says are tight
+        queue.update(room, (f << 32) | (Integer.MAX_VALUE - g));
+    }
+
+    private void reset() {
+        queue.clear();
+        query++;
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over room ids with decrease-key. A position table maps each
+ * room to its slot, so improving a queued room moves it up in place instead of
+ * pushing a duplicate entry.
+ */
+public class IndexedMinHeap implements DistanceQueue {
+    private final int[] heap;      // heap slot -> room
+    private final long[] keys;     // heap slot -> key
+    private final int[] position;  // room -> heap slot, or -1 if not queued
+    private int size;
+
+    /**
+     * @param rooms number of room ids the heap can hold
+     */
+    public IndexedMinHeap(int rooms) {
+        heap = new int[rooms];
+        keys = new long[rooms];
+        position = new int[rooms];
+        Arrays.fill(position, -1);
+    }
+
+    @Override
+    public void update(int room, long key) {
+        int slot = position[room];
+        if (slot == -1) {
+            slot = size++;
+        } else if (keys[slot] <= key) {
+            return;
+        }
+        siftUp(slot, room, key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int poll() {
+        if (size == 0) throw new IllegalStateException("queue is empty");
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) siftDown(0, heap[size], keys[size]);
+        return top;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) position[heap[i]] = -1;
+        size = 0;
+    }
+
+    /**
+     * @param room room id
+     * @return true if the room is queued
+     */
+    public boolean contains(int room) {
+        return position[room] != -1;
+    }
+
+    private void siftUp(int slot, int room, long key) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            place(slot, heap[parent], keys[parent]);
+            slot = parent;
+        }
+        place(slot, room, key);
+    }
+
+    private void siftDown(int slot, int room, long key) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size) break;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (keys[child] >= key) break;
+            place(slot, heap[child], keys[child]);
+            slot = child;
+        }
+        place(slot, room, key);
+    }
+
+    private void place(int slot, int room, long key) {
+        heap[slot] = room;
+        keys[slot] = key;
+        position[room] = slot;
+    }
+}
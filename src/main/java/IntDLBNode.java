@@ -0,0 +1,220 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A DLB trie node keyed on an interned token id instead of a String.
+ * Each node keeps a pointer to its twin {@link DLBNode} so that patterns added
+ * through the int trie also show up in the caller's String trie.
+ * <p>
+ * Children always form the usual child/sibling chain. Once a node has more than
+ * {@link #INDEX_THRESHOLD} children it also keeps an open-addressed hash table
+ * over them, so lookups stay constant time on wide levels.
+ */
+public class IntDLBNode {
+    /**
+     * Fan-out above which a node starts hashing its children.
+     */
+    public static final int INDEX_THRESHOLD = 8;
+
+    public int token;
+    public int code;
+    public IntDLBNode child;
+    public IntDLBNode sibling;
+
+    /**
+     * The matching node in the String trie, or null for the sentinel root.
+     */
+    public DLBNode source;
+
+    /**
+     * The node this one hangs off, or null for the sentinel root.
+     */
+    public IntDLBNode parent;
+
+    // bookkeeping for bounded codebooks, see CommandCodebook
+    int learnedChildren; // children whose code was assigned by the codebook
+    IntDLBNode lruPrev;
+    IntDLBNode lruNext;
+
+    private int childCount;
+    private IntDLBNode[] index; // linear-probing table over the child chain, or null
+
+    public IntDLBNode(int token, DLBNode source) {
+        this.token = token;
+        this.code = -1;
+        this.child = null;
+        this.sibling = null;
+        this.source = source;
+    }
+
+    /**
+     * Find the child of this node holding the given token id.
+     *
+     * @param token interned token id
+     * @return the matching child or null if not found
+     */
+    public IntDLBNode findChild(int token) {
+        if (index != null) {
+            int mask = index.length - 1;
+            for (int slot = hash(token) & mask; index[slot] != null; slot = (slot + 1) & mask) {
+                if (index[slot].token == token) return index[slot];
+            }
+            return null;
+        }
+
+        IntDLBNode curr = child;
+        while (curr != null) {
+            if (curr.token == token) return curr;
+            curr = curr.sibling;
+        }
+        return null;
+    }
+
+    /**
+     * Prepend a new child for the given token, creating the twin String node
+     * under {@link #source} as well.
+     *
+     * @param token    interned token id
+     * @param interner interner that owns the token id
+     * @param code     code to assign to the new node
+     * @return the new child
+     */
+    public IntDLBNode addChild(int token, TokenInterner interner, int code) {
+        DLBNode twin = new DLBNode(interner.token(token));
+        twin.code = code;
+        if (source != null) {
+            twin.sibling = source.child;
+            source.child = twin;
+        }
+
+        IntDLBNode node = new IntDLBNode(token, twin);
+        node.code = code;
+        link(node);
+        return node;
+    }
+
+    /**
+     * @return the number of children hanging off this node
+     */
+    public int childCount() {
+        return childCount;
+    }
+
+    /**
+     * Unlink a child from this node, removing its twin from the String trie too.
+     *
+     * @param node a current child of this node
+     */
+    public void removeChild(IntDLBNode node) {
+        if (child == node) {
+            child = node.sibling;
+        } else {
+            IntDLBNode curr = child;
+            while (curr.sibling != node) curr = curr.sibling;
+            curr.sibling = node.sibling;
+        }
+        node.sibling = null;
+        node.parent = null;
+        childCount--;
+
+        if (source != null) {
+            if (source.child == node.source) {
+                source.child = node.source.sibling;
+            } else {
+                DLBNode curr = source.child;
+                while (curr.sibling != node.source) curr = curr.sibling;
+                curr.sibling = node.source.sibling;
+            }
+            node.source.sibling = null;
+        }
+
+        if (index != null) delete(node);
+    }
+
+    // prepend to the child chain and keep the hash index in step
+    private void link(IntDLBNode node) {
+        node.parent = this;
+        node.sibling = child;
+        child = node;
+        childCount++;
+
+        if (index != null) {
+            if (childCount * 2 > index.length) {
+                rebuildIndex(index.length * 2);
+            } else {
+                put(index, node);
+            }
+        } else if (childCount > INDEX_THRESHOLD) {
+            rebuildIndex(Integer.highestOneBit(childCount) * 4);
+        }
+    }
+
+    private void rebuildIndex(int capacity) {
+        index = new IntDLBNode[capacity];
+        for (IntDLBNode curr = child; curr != null; curr = curr.sibling) {
+            put(index, curr);
+        }
+    }
+
+    private static void put(IntDLBNode[] table, IntDLBNode node) {
+        int mask = table.length - 1;
+        int slot = hash(node.token) & mask;
+        while (table[slot] != null) slot = (slot + 1) & mask;
+        table[slot] = node;
+    }
+
+    // backward-shift deletion keeps every probe chain unbroken without tombstones
+    private void delete(IntDLBNode node) {
+        int mask = index.length - 1;
+        int hole = hash(node.token) & mask;
+        while (index[hole] != node) hole = (hole + 1) & mask;
+        index[hole] = null;
+
+        for (int slot = (hole + 1) & mask; index[slot] != null; slot = (slot + 1) & mask) {
+            int home = hash(index[slot].token) & mask;
+            // move the entry back unless its home lies cyclically in (hole, slot]
+            boolean reachable = hole <= slot ? (home > hole && home <= slot) : (home > hole || home <= slot);
+            if (!reachable) {
+                index[hole] = index[slot];
+                index[slot] = null;
+                hole = slot;
+            }
+        }
+    }
+
+    private static int hash(int token) {
+        int h = token * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Build an int trie mirroring the given String trie, interning every token on
+     * the way. The walk is iterative, so long sibling chains cannot overflow the
+     * stack.
+     *
+     * @param root     first node of the top-level sibling chain (may be null)
+     * @param interner interner receiving the tokens
+     * @return a sentinel node whose child chain mirrors the top level
+     */
+    public static IntDLBNode mirror(DLBNode root, TokenInterner interner) {
+        IntDLBNode sentinel = new IntDLBNode(-1, null);
+
+        // each entry pairs a String node with the int node that will own its copy
+        Deque<Object[]> stack = new ArrayDeque<>();
+        if (root != null) stack.push(new Object[] { root, sentinel });
+
+        while (!stack.isEmpty()) {
+            Object[] top = stack.pop();
+            DLBNode src = (DLBNode) top[0];
+            IntDLBNode parent = (IntDLBNode) top[1];
+
+            IntDLBNode copy = new IntDLBNode(interner.intern(src.token), src);
+            copy.code = src.code;
+            parent.link(copy);
+
+            if (src.sibling != null) stack.push(new Object[] { src.sibling, parent });
+            if (src.child != null) stack.push(new Object[] { src.child, copy });
+        }
+        return sentinel;
+    }
+}
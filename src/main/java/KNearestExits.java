@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Up to k nearest distinct exits for every room, found by one multi-label
+ * Dijkstra. Each room holds at most k (exit, distance) labels in flat arrays.
+ * Labels are settled in (distance, exit rank) order, a room accepts at most
+ * one label per exit, and a room with k labels stops propagating. Work is
+ * therefore about k times a single-exit search, not k separate searches.
+ * <p>
+ * An exit's first label is always itself, ahead of exits that reach it over
+ * zero-weight edges, so it keeps up to k - 1 other labels. Routes
+ * to other exits may pass through an exit, since a congested exit is still a
+ * room. A room's first label is at the distance {@link ExitDistances}
+ * reports, and is the same exit unless a tie is decided by a route through
+ * another exit, which ExitDistances ends there.
+ */
+public class KNearestExits {
+    private final CompiledRoomGraph graph;
+    private final int[] exits;
+    private final int k;
+    private final int[] labelRank; // room * k + j -> exit rank of the room's j-th nearest exit
+    private final int[] labelDist; // room * k + j -> its distance
+    private final int[] count;     // room -> number of labels
+
+    private KNearestExits(CompiledRoomGraph graph, int[] exits, int k, int[] labelRank, int[] labelDist, int[] count) {
+        this.graph = graph;
+        this.exits = exits;
+        this.k = k;
+        this.labelRank = labelRank;
+        this.labelDist = labelDist;
+        this.count = count;
+    }
+
+    /**
+     * Run the multi-label search.
+     *
+     * @param graph     compiled room graph
+     * @param exitRooms exit room names in tie-breaking order; unknown names are ignored
+     * @param k         number of exits to keep per room
+     * @return the labels for every room
+     */
+    public static KNearestExits compute(CompiledRoomGraph graph, List<String> exitRooms, int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive");
+        int[] exits = ExitDistances.exitIds(graph, exitRooms);
+        int n = graph.roomCount();
+        int[] labelRank = new int[n * k];
+        int[] labelDist = new int[n * k];
+        int[] count = new int[n];
+        int[] passed = new int[n]; // room -> labels passed on, the k nearest in (distance, rank) order
+
+        LabelHeap heap = new LabelHeap(Math.max(16, exits.length));
+        for (int rank = 0; rank < exits.length; rank++) {
+            // settled up front, so no exit reaching it for free comes first
+            labelRank[exits[rank] * k] = rank;
+            count[exits[rank]] = 1;
+            heap.push(DistanceQueue.key(0, rank), exits[rank]);
+        }
+
+        while (!heap.isEmpty()) {
+            long key = heap.peekKey();
+            int room = heap.pop();
+            int dist = DistanceQueue.distance(key);
+            int rank = DistanceQueue.rank(key);
+            if (dist != 0 || room != exits[rank]) {
+                if (passed[room] == k || hasLabel(labelRank, room * k, count[room], rank)) continue;
+
+                // 1) settle the label: it is this room's next nearest distinct exit. An
+                // exit holds its own label too, so its k-th is passed on but not kept
+                if (count[room] < k) {
+                    labelRank[room * k + count[room]] = rank;
+                    labelDist[room * k + count[room]] = dist;
+                    count[room]++;
+                }
+            }
+            passed[room]++;
+
+            // 2) offer it to neighbours that still need labels from this exit
+            for (int e = graph.edgeStart(room); e < graph.edgeEnd(room); e++) {
+                int next = graph.edgeTarget(e);
+                long newDist = (long) dist + graph.edgeWeight(e);
+                if (newDist >= ExitDistances.UNREACHABLE || passed[next] >= k) continue;
+                if (hasLabel(labelRank, next * k, count[next], rank)) continue;
+                heap.push(DistanceQueue.key((int) newDist, rank), next);
+            }
+        }
+        return new KNearestExits(graph, exits, k, labelRank, labelDist, count);
+    }
+
+    private static boolean hasLabel(int[] labelRank, int from, int labels, int rank) {
+        for (int j = 0; j < labels; j++) {
+            if (labelRank[from + j] == rank) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the graph these labels belong to
+     */
+    public CompiledRoomGraph graph() {
+        return graph;
+    }
+
+    /**
+     * @param room room id
+     * @return number of exits found for the room, at most k
+     */
+    public int labelCount(int room) {
+        return count[room];
+    }
+
+    /**
+     * @param room room id
+     * @param j    label index, 0 for the nearest
+     * @return room id of the room's j-th nearest exit
+     */
+    public int exit(int room, int j) {
+        checkLabel(room, j);
+        return exits[labelRank[room * k + j]];
+    }
+
+    /**
+     * @param room room id
+     * @param j    label index, 0 for the nearest
+     * @return distance to the room's j-th nearest exit
+     */
+    public int distance(int room, int j) {
+        checkLabel(room, j);
+        return labelDist[room * k + j];
+    }
+
+    /**
+     * @param room room name
+     * @return the room's exits, nearest first; empty if the room is unknown or
+     *         reaches no exit
+     */
+    public List<ExitInfo> infos(String room) {
+        int id = graph.id(room);
+        return id == -1 ? Collections.emptyList() : infos(id);
+    }
+
+    /**
+     * First of the room's exits that is not congested.
+     *
+     * @param room      room name
+     * @param congested names of exits to avoid
+     * @return the nearest uncongested exit among the k kept, or null if all are
+     *         congested or none is reachable
+     */
+    public ExitInfo firstAvailable(String room, Set<String> congested) {
+        for (ExitInfo info : infos(room)) {
+            if (!congested.contains(info.exitRoom)) return info;
+        }
+        return null;
+    }
+
+    /**
+     * @return the exits of every room that was a key of the source map
+     */
+    public Map<String, List<ExitInfo>> toMap() {
+        Map<String, List<ExitInfo>> result = new HashMap<>();
+        for (int room = 0; room < graph.listedRooms(); room++) {
+            result.put(graph.name(room), infos(room));
+        }
+        return result;
+    }
+
+    private List<ExitInfo> infos(int room) {
+        List<ExitInfo> infos = new ArrayList<>(count[room]);
+        for (int j = 0; j < count[room]; j++) {
+            infos.add(new ExitInfo(graph.name(exit(room, j)), distance(room, j)));
+        }
+        return infos;
+    }
+
+    private void checkLabel(int room, int j) {
+        if (j < 0 || j >= count[room]) {
+            throw new IndexOutOfBoundsException("room " + room + " has " + count[room] + " labels, asked for " + j);
+        }
+    }
+
+    /**
+     * Binary min-heap of (key, room) label entries in primitive arrays. A room
+     * can be queued once per exit, so entries are not indexed by room.
+     */
+    private static class LabelHeap {
+        private long[] keys;
+        private int[] rooms;
+        private int size;
+
+        LabelHeap(int capacity) {
+            keys = new long[capacity];
+            rooms = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekKey() {
+            return keys[0];
+        }
+
+        void push(long key, int room) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                rooms = Arrays.copyOf(rooms, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                rooms[i] = rooms[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            rooms[i] = room;
+        }
+
+        int pop() {
+            int top = rooms[0];
+            size--;
+            long key = keys[size];
+            int room = rooms[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= key) break;
+                keys[i] = keys[child];
+                rooms[i] = rooms[child];
+                i = child;
+            }
+            keys[i] = key;
+            rooms[i] = room;
+            return top;
+        }
+    }
+}
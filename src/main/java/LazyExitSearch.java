@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Demand-driven nearest-exit search. The multi-source Dijkstra runs only until
+ * every requested room is settled, then pauses with its frontier intact. Later
+ * queries resume from there, and rooms settled before are answered from the
+ * distance arrays without searching.
+ * <p>
+ * A search belongs to one compiled graph and exit list, which never change, so
+ * it can be kept as the cache for that graph version. Queries are synchronized.
+ */
+public class LazyExitSearch {
+    private final CompiledRoomGraph graph;
+    private final int[] exits;
+    private final int[] dist;
+    private final int[] exitRank;
+    private final int[] nextHop;
+    private final boolean[] isExit;  // fixed at distance 0, never relaxed into
+    private final boolean[] settled;
+    // exact key order is needed to know a polled room is final, so no bucket queue
+    private final IndexedMinHeap queue;
+    private int settledCount;
+
+    /**
+     * Prepare a search; nothing is settled until the first query.
+     *
+     * @param graph     compiled room graph
+     * @param exitRooms exit room names in tie-breaking order; unknown names are ignored
+     */
+    public LazyExitSearch(CompiledRoomGraph graph, List<String> exitRooms) {
+        this.graph = graph;
+        this.exits = ExitDistances.exitIds(graph, exitRooms);
+        int n = graph.roomCount();
+        dist = new int[n];
+        exitRank = new int[n];
+        nextHop = new int[n];
+        isExit = new boolean[n];
+        settled = new boolean[n];
+        queue = new IndexedMinHeap(n);
+        Arrays.fill(dist, ExitDistances.UNREACHABLE);
+        Arrays.fill(exitRank, -1);
+        Arrays.fill(nextHop, -1);
+        for (int rank = 0; rank < exits.length; rank++) {
+            dist[exits[rank]] = 0;
+            exitRank[exits[rank]] = rank;
+            isExit[exits[rank]] = true;
+            queue.update(exits[rank], DistanceQueue.key(0, rank));
+        }
+    }
+
+    /**
+     * @return the graph being searched
+     */
+    public CompiledRoomGraph graph() {
+        return graph;
+    }
+
+    /**
+     * @param room room name
+     * @return the room's ExitInfo, or null if the room is not in the graph
+     */
+    public synchronized ExitInfo query(String room) {
+        int id = graph.id(room);
+        return id == -1 ? null : query(id);
+    }
+
+    /**
+     * @param room room id
+     * @return the room's ExitInfo, with a null exit if none is reachable
+     */
+    public synchronized ExitInfo query(int room) {
+        settle(room);
+        return new ExitInfo(exitRank[room] == -1 ? null : graph.name(exits[exitRank[room]]), dist[room]);
+    }
+
+    /**
+     * Answer a batch of rooms, searching only as far as the farthest of them.
+     *
+     * @param rooms room names; names not in the graph are left out of the result
+     * @return ExitInfo for each known room
+     */
+    public synchronized Map<String, ExitInfo> query(Collection<String> rooms) {
+        Map<String, ExitInfo> result = new HashMap<>();
+        for (String room : rooms) {
+            int id = graph.id(room);
+            if (id != -1) result.put(room, query(id));
+        }
+        return result;
+    }
+
+    /**
+     * Route a room to its nearest exit, searching only as far as needed.
+     * Every room on a settled room's route is settled too.
+     *
+     * @param room room name
+     * @return room names from {@code room} to the exit, both included; empty if
+     *         the room is unknown or no exit is reachable
+     */
+    public synchronized List<String> route(String room) {
+        int id = graph.id(room);
+        if (id == -1) return new ArrayList<>();
+        settle(id);
+        List<String> route = new ArrayList<>();
+        if (exitRank[id] == -1) return route;
+        for (int r = id; r != -1; r = nextHop[r]) route.add(graph.name(r));
+        return route;
+    }
+
+    /**
+     * Run the search to completion.
+     *
+     * @return distances for every room
+     */
+    public synchronized ExitDistances finish() {
+        while (!queue.isEmpty()) step();
+        return new ExitDistances(graph, exits, dist.clone(), exitRank.clone(), nextHop.clone());
+    }
+
+    /**
+     * @param room room id
+     * @return true if the room's answer is final without further searching
+     */
+    public synchronized boolean isSettled(int room) {
+        return settled[room] || queue.isEmpty();
+    }
+
+    /**
+     * @return number of rooms settled so far
+     */
+    public synchronized int settledCount() {
+        return settledCount;
+    }
+
+    private void settle(int room) {
+        while (!settled[room] && !queue.isEmpty()) step();
+    }
+
+    /**
+     * Settle the closest queued room and relax its edges.
+     */
+    private void step() {
+        int room = queue.poll();
+        settled[room] = true;
+        settledCount++;
+        for (int e = graph.edgeStart(room); e < graph.edgeEnd(room); e++) {
+            int next = graph.edgeTarget(e);
+            long newDist = (long) dist[room] + graph.edgeWeight(e);
+            if (settled[next] || isExit[next] || newDist >= ExitDistances.UNREACHABLE) continue;
+
+            long newKey = DistanceQueue.key((int) newDist, exitRank[room]);
+            if (dist[next] == ExitDistances.UNREACHABLE || newKey < DistanceQueue.key(dist[next], exitRank[next])) {
+                dist[next] = (int) newDist;
+                exitRank[next] = exitRank[room];
+                nextHop[next] = room;
+                queue.update(next, newKey);
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * LZW decoder matching {@link StreamingLzwEncoder} and
+ * {@link A2#compressCommandPatterns}.
+ * The dictionary is a flat table indexed by code. Each entry holds its prefix
+ * code and last token id, so a code decodes in time proportional to its own
+ * length, with no trie lookups. The decoder grows the same patterns as the
+ * encoder, including the KwKwK case where a code is used in the same step that
+ * defines it.
+ * <p>
+ * The decoder must be seeded with the same trie the encoder started from. For a
+ * bounded codebook it must also be configured with the same
+ * {@link DictionaryPolicy} and capacity. {@link BitPackedCodeReader} does this
+ * from the stream header.
+ */
+public class LzwDecoder {
+    private static final int NO_PREFIX = -1;
+
+    private final TokenInterner interner = new TokenInterner();
+
+    // per-code entries; length 0 marks an unused code
+    private int[] prefix = new int[64];
+    private int[] last = new int[64];
+    private int[] first = new int[64];
+    private int[] length = new int[64];
+
+    // preloaded trie nodes without a code of their own, referenced as -(i + 2)
+    private int[] hiddenPrefix = new int[0];
+    private int[] hiddenLast = new int[0];
+    private int hiddenCount;
+
+    private DictionaryPolicy policy = DictionaryPolicy.UNBOUNDED;
+    private int capacity = Integer.MAX_VALUE;
+    private final int baseCode; // codes below this were seeded from the trie
+
+    // learned codes without learned extensions in recency order, mirroring CommandCodebook
+    private int[] children = new int[64]; // learned entries extending each code
+    private int[] lruPrev = new int[64];
+    private int[] lruNext = new int[64];
+    private int lruHead = NO_PREFIX;
+    private int lruTail = NO_PREFIX;
+
+    private int nextCode;
+    private int prev = NO_PREFIX; // previous code in the current sequence
+
+    private String[] buffer = new String[16];
+
+    /**
+     * Seed the decoder with every pattern in the trie the encoder started from.
+     *
+     * @param root first node of the top-level sibling chain (may be null)
+     */
+    public LzwDecoder(DLBNode root) {
+        int maxCode = -1;
+
+        // each entry: node, reference to its parent's pattern, depth, first token id
+        Deque<Object[]> stack = new ArrayDeque<>();
+        if (root != null) stack.push(new Object[] { root, NO_PREFIX, 1, -1 });
+
+        while (!stack.isEmpty()) {
+            Object[] top = stack.pop();
+            DLBNode node = (DLBNode) top[0];
+            int parentRef = (Integer) top[1];
+            int depth = (Integer) top[2];
+            int token = interner.intern(node.token);
+            int firstToken = depth == 1 ? token : (Integer) top[3];
+
+            int ref;
+            if (node.code >= 0) {
+                setEntry(node.code, parentRef, token, firstToken, depth);
+                maxCode = Math.max(maxCode, node.code);
+                ref = node.code;
+            } else {
+                ref = addHidden(parentRef, token);
+            }
+
+            if (node.sibling != null) stack.push(new Object[] { node.sibling, parentRef, depth, top[3] });
+            if (node.child != null) stack.push(new Object[] { node.child, ref, depth + 1, firstToken });
+        }
+        nextCode = maxCode + 1;
+        baseCode = nextCode;
+    }
+
+    /**
+     * Apply the encoder's size limit. Must be called before the first code.
+     *
+     * @param policy   the encoder codebook's policy
+     * @param capacity the encoder codebook's capacity
+     */
+    public void configure(DictionaryPolicy policy, int capacity) {
+        if (nextCode != baseCode) {
+            throw new IllegalStateException("decoder already in use");
+        }
+        this.policy = policy;
+        this.capacity = policy == DictionaryPolicy.UNBOUNDED ? Integer.MAX_VALUE : capacity;
+    }
+
+    /**
+     * @return the code the next learned pattern will receive
+     */
+    public int nextCode() {
+        return nextCode;
+    }
+
+    /**
+     * Upper bound (exclusive) on the next code the encoder can have emitted:
+     * every defined code, plus the one the next step would define.
+     *
+     * @return the current code limit
+     */
+    public int codeLimit() {
+        return nextCode + (prev != NO_PREFIX && nextCode < capacity ? 1 : 0);
+    }
+
+    /**
+     * Decode the next code of the current sequence, growing the dictionary the
+     * same way the encoder did. The tokens are written to {@link #buffer()},
+     * which is reused between calls.
+     *
+     * @param code the next code in the stream
+     * @return number of tokens written to the buffer
+     * @throws IllegalArgumentException if the code cannot occur at this point
+     */
+    public int accept(int code) {
+        // the encoder added prev + next token before emitting this code
+        int slot = prev == NO_PREFIX ? NO_PREFIX : claimSlot(prev);
+        if (slot != NO_PREFIX && code == slot) {
+            // KwKwK: the code is defined by this very step as prev + first(prev)
+            setLearned(slot, prev, first[prev]);
+        } else {
+            if (!isDefined(code)) {
+                throw new IllegalArgumentException("undefined code " + code);
+            }
+            if (slot != NO_PREFIX) setLearned(slot, prev, first[code]);
+        }
+        touch(code);
+        prev = code;
+
+        int len = length[code];
+        if (buffer.length < len) {
+            buffer = new String[Math.max(len, buffer.length * 2)];
+        }
+        return decodeInto(code, buffer, 0);
+    }
+
+    /**
+     * Mark the end of the current sequence. The next code starts a fresh match
+     * and does not extend the dictionary.
+     */
+    public void endSequence() {
+        prev = NO_PREFIX;
+    }
+
+    /**
+     * Drop every learned pattern, as a RESET encoder does when it emits a clear
+     * code. The match in progress ends, so the next code adds nothing.
+     */
+    public void clear() {
+        for (int code = baseCode; code < nextCode; code++) {
+            length[code] = 0;
+        }
+        Arrays.fill(children, 0, nextCode, 0);
+        lruHead = NO_PREFIX;
+        lruTail = NO_PREFIX;
+        nextCode = baseCode;
+        prev = NO_PREFIX;
+    }
+
+    /**
+     * @return the reusable buffer filled by {@link #accept(int)}
+     */
+    public String[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Write the tokens of an already known code into the given array without
+     * changing the dictionary.
+     *
+     * @param code   a defined code
+     * @param out    destination array
+     * @param offset index of the first token in {@code out}
+     * @return number of tokens written
+     */
+    public int decodeInto(int code, String[] out, int offset) {
+        if (!isDefined(code)) {
+            throw new IllegalArgumentException("undefined code " + code);
+        }
+        int len = length[code];
+        int pos = offset + len - 1;
+        int ref = code;
+        while (ref != NO_PREFIX) {
+            if (ref >= 0) {
+                out[pos--] = interner.token(last[ref]);
+                ref = prefix[ref];
+            } else {
+                int h = -ref - 2;
+                out[pos--] = interner.token(hiddenLast[h]);
+                ref = hiddenPrefix[h];
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Decode one sequence's codes.
+     *
+     * @param codes the codes emitted for one command sequence
+     * @return the decoded command tokens
+     */
+    public List<String> decodeSequence(List<Integer> codes) {
+        List<String> tokens = new ArrayList<>();
+        for (int code : codes) {
+            int len = accept(code);
+            tokens.addAll(Arrays.asList(buffer).subList(0, len));
+        }
+        endSequence();
+        return tokens;
+    }
+
+    /**
+     * Decode a batch of sequences, one list of codes per sequence.
+     *
+     * @param codesPerSequence the codes of each command sequence in order
+     * @return the decoded command sequences
+     */
+    public List<List<String>> decode(List<List<Integer>> codesPerSequence) {
+        List<List<String>> sequences = new ArrayList<>();
+        for (List<Integer> codes : codesPerSequence) {
+            sequences.add(decodeSequence(codes));
+        }
+        return sequences;
+    }
+
+    private boolean isDefined(int code) {
+        return code >= 0 && code < nextCode && length[code] > 0;
+    }
+
+    // pick the code the encoder gave its next pattern, or NO_PREFIX if it added none
+    private int claimSlot(int prefixCode) {
+        if (nextCode < capacity) return nextCode++;
+        if (policy != DictionaryPolicy.LRU) return NO_PREFIX;
+
+        int code = lruHead == prefixCode ? lruNext[lruHead] : lruHead;
+        if (code == NO_PREFIX) return NO_PREFIX;
+        unlinkLearned(code);
+        int parent = prefix[code];
+        if (parent >= 0 && --children[parent] == 0 && parent >= baseCode) appendLearned(parent);
+        length[code] = 0;
+        return code;
+    }
+
+    private void setLearned(int code, int prefixCode, int token) {
+        setEntry(code, prefixCode, token, first[prefixCode], length[prefixCode] + 1);
+        if (policy != DictionaryPolicy.UNBOUNDED) {
+            if (children[prefixCode]++ == 0 && prefixCode >= baseCode) unlinkLearned(prefixCode);
+            appendLearned(code);
+        }
+    }
+
+    private void touch(int code) {
+        if (policy == DictionaryPolicy.LRU && code >= baseCode && children[code] == 0) {
+            unlinkLearned(code);
+            appendLearned(code);
+        }
+    }
+
+    private void appendLearned(int code) {
+        lruPrev[code] = lruTail;
+        lruNext[code] = NO_PREFIX;
+        if (lruTail == NO_PREFIX) lruHead = code;
+        else lruNext[lruTail] = code;
+        lruTail = code;
+    }
+
+    private void unlinkLearned(int code) {
+        if (lruPrev[code] == NO_PREFIX) lruHead = lruNext[code];
+        else lruNext[lruPrev[code]] = lruNext[code];
+        if (lruNext[code] == NO_PREFIX) lruTail = lruPrev[code];
+        else lruPrev[lruNext[code]] = lruPrev[code];
+    }
+
+    private void setEntry(int code, int prefixRef, int token, int firstToken, int len) {
+        if (code >= prefix.length) {
+            int size = Math.max(code + 1, prefix.length * 2);
+            prefix = Arrays.copyOf(prefix, size);
+            last = Arrays.copyOf(last, size);
+            first = Arrays.copyOf(first, size);
+            length = Arrays.copyOf(length, size);
+            children = Arrays.copyOf(children, size);
+            lruPrev = Arrays.copyOf(lruPrev, size);
+            lruNext = Arrays.copyOf(lruNext, size);
+        }
+        prefix[code] = prefixRef;
+        last[code] = token;
+        first[code] = firstToken;
+        length[code] = len;
+    }
+
+    private int addHidden(int prefixRef, int token) {
+        if (hiddenCount == hiddenPrefix.length) {
+            int size = Math.max(8, hiddenCount * 2);
+            hiddenPrefix = Arrays.copyOf(hiddenPrefix, size);
+            hiddenLast = Arrays.copyOf(hiddenLast, size);
+        }
+        hiddenPrefix[hiddenCount] = prefixRef;
+        hiddenLast[hiddenCount] = token;
+        return -(hiddenCount++) - 2;
+    }
+}
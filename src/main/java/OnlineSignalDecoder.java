@@ -0,0 +1,289 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Online version of {@link SignalRecoveryEngine#recover}: room observations
+ * arrive one at a time, each advances the DP by one layer, and rooms of the
+ * corrected path go to a sink as soon as they are settled.
+ * <p>
+ * A prefix is settled once the backpointers of every room still reachable
+ * lead through the same room at some earlier token. Whatever the exit turns
+ * out to be, the best path then starts with that prefix, so it matches the
+ * offline result. If no such agreement forms within {@code maxLag} tokens,
+ * the decoder commits half the window along the currently cheapest room. It
+ * then restricts the remaining layers to paths through that room, so later
+ * output still continues the committed path but may cost more than the
+ * offline optimum.
+ * <p>
+ * Rooms nothing leads into, such as START, stop counting once staying in them
+ * is clearly worse than having left. START itself is held back until the path
+ * leaves it or ends there.
+ * <p>
+ * {@link #finish} returns false if the exit cannot be reached. For an exit
+ * START cannot reach, the sink then gets just the exit, as offline recovery
+ * returns, provided nothing was committed yet; rooms already sent cannot be
+ * taken back, so otherwise it gets nothing more. A forced commit may also end
+ * in a room the exit cannot be reached from; finish then sends nothing more
+ * either, rather than an exit that does not continue the path.
+ * <p>
+ * Only the last {@code maxLag + 1} layers of tokens, backpointer codes and
+ * ancestors are kept. Memory is therefore O(V * maxLag) however long the
+ * robot runs. Per-token work is one DP layer plus an O(V * maxLag) agreement
+ * check. Costs are rebased to the row minimum after every token, so they
+ * never grow with the run either.
+ */
+public class OnlineSignalDecoder {
+    private static final int INF = SignalRecoveryEngine.UNREACHABLE;
+
+    private final SignalRecoveryEngine engine;
+    private final Consumer<String> sink;
+    private final int maxLag;
+    private final int window;                      // ring slots: layers committed + 1 .. current
+    private final SignalRecoveryEngine.Closure closure;
+    private final SignalRecoveryEngine.PackedCodes first; // layer 0, until the first commit
+    private final SignalRecoveryEngine.PackedCodes codes; // layer i in slot i % window
+    private final int[][] ancestor;                // room -> room it left at the layer before
+    private final int[] tokens;
+    private final int[] mark;
+    private int[] meeting;                         // scratch sets for the agreement check
+    private int[] meetingNext;
+    private int[] prev;
+    private int[] cost;
+    private int layer;
+    private int committedLayer;
+    private int committedRoom;
+    private int lastEmitted = -1;
+    private boolean startHeld;                     // START was committed but not yet sent
+    private int stamp;
+    private boolean finished;
+
+    /**
+     * @param engine compiled room graph
+     * @param maxLag most tokens a room may wait before it is forced out
+     * @param sink   receiver of the corrected path, one room at a time
+     * @throws IllegalArgumentException if maxLag is not positive
+     */
+    public OnlineSignalDecoder(SignalRecoveryEngine engine, int maxLag, Consumer<String> sink) {
+        if (maxLag < 1) throw new IllegalArgumentException("maxLag must be positive");
+        this.engine = engine;
+        this.sink = sink;
+        this.maxLag = maxLag;
+        int rooms = engine.roomCount();
+        window = maxLag + 1;
+        closure = engine.newClosure();
+        first = engine.newCodes(rooms);
+        codes = engine.newCodes((long) window * rooms);
+        ancestor = new int[window][rooms];
+        tokens = new int[window];
+        mark = new int[rooms];
+        meeting = new int[rooms];
+        meetingNext = new int[rooms];
+        prev = new int[rooms];
+        cost = new int[rooms];
+        engine.begin(cost, closure, first);
+        committedRoom = engine.startRoom();
+    }
+
+    /**
+     * Feed the next observation. Rooms that become settled are sent to the
+     * sink before this returns.
+     *
+     * @param label observed room label; labels that are not rooms always count as substitutions
+     * @throws IllegalStateException if the decoder was finished
+     */
+    public void accept(String label) {
+        if (finished) throw new IllegalStateException("decoder is finished");
+        layer++;
+        tokens[layer % window] = engine.id(label);
+        int[] swap = prev;
+        prev = cost;
+        cost = swap;
+        advance(layer);
+
+        agree();
+        if (layer - committedLayer > maxLag) force();
+    }
+
+    /**
+     * End the trace at an exit and send the rest of its path to the sink.
+     *
+     * @param exitRoom room the path must end in
+     * @return true if the sink got the path to the exit; false if the exit is
+     *         not a room or cannot be reached from START or from the committed
+     *         path
+     * @throws IllegalStateException if the decoder was already finished
+     */
+    public boolean finish(String exitRoom) {
+        if (finished) throw new IllegalStateException("decoder is finished");
+        finished = true;
+        int exit = engine.id(exitRoom);
+        if (exit == -1) return false;
+        // a stranded exit may not join the committed path either
+        if (cost[exit] != INF && emitPath(exit, layer)) {
+            if (startHeld) send(engine.startRoom());
+            return true;
+        }
+        // nothing committed yet: START cannot reach the exit, and offline recovery returns the exit alone
+        if (lastEmitted == -1 || startHeld) send(exit);
+        return false;
+    }
+
+    /**
+     * @return tokens received but not yet covered by the committed path
+     */
+    public int pending() {
+        return layer - committedLayer;
+    }
+
+    /**
+     * Compute layer i from the previous cost row, with its codes and ancestors.
+     */
+    private void advance(int i) {
+        int rooms = cost.length;
+        int slot = i % window;
+        engine.layer(prev, cost, tokens[slot], closure, codes, (long) slot * rooms);
+
+        // rooms settle after the room they were inserted from, so one pass resolves insertion chains
+        int[] up = ancestor[slot];
+        Arrays.fill(up, -1);
+        int min = INF;
+        for (int k = 0; k < closure.settledCount; k++) {
+            int room = closure.order[k];
+            int code = codes.get((long) slot * rooms + room);
+            int how = code & 3;
+            if (how == SignalRecoveryEngine.DELETE) up[room] = room;
+            else if (how == SignalRecoveryEngine.MATCH) up[room] = engine.from(room, code);
+            else up[room] = up[engine.from(room, code)];
+            min = Math.min(min, cost[room]);
+        }
+        for (int room = 0; room < rooms; room++) {
+            if (cost[room] != INF) cost[room] -= min;
+        }
+    }
+
+    /**
+     * Follow the ancestors of every reachable room back toward the committed
+     * layer, and commit up to the latest layer where they all meet in one room.
+     */
+    private void agree() {
+        int size = 0;
+        for (int room = 0; room < cost.length; room++) {
+            if (cost[room] != INF && !stranded(room)) meeting[size++] = room;
+        }
+        for (int i = layer; i > committedLayer && size > 0; i--) {
+            if (size == 1) {
+                commit(meeting[0], i);
+                return;
+            }
+            int[] up = ancestor[i % window];
+            stamp++;
+            int next = 0;
+            for (int k = 0; k < size; k++) {
+                int a = up[meeting[k]];
+                if (mark[a] != stamp) {
+                    mark[a] = stamp;
+                    meetingNext[next++] = a;
+                }
+            }
+            int[] swap = meeting;
+            meeting = meetingNext;
+            meetingNext = swap;
+            size = next;
+        }
+    }
+
+    /**
+     * A room nothing leads into, such as START, can only be left. Leaving
+     * saves at most one edit over being in the successor already, so once it
+     * costs more than one edit above every successor, no path through it can
+     * win, except one that never leaves it.
+     */
+    private boolean stranded(int room) {
+        if (engine.inDegree(room) > 0) return false;
+        for (int i = engine.succStart(room); i < engine.succEnd(room); i++) {
+            int next = engine.succ(i);
+            if (next != room && (cost[next] == INF || cost[room] - 1 <= cost[next])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * No agreement within maxLag tokens: commit half the window along the
+     * cheapest room, then recompute the newer layers from that room alone.
+     */
+    private void force() {
+        int best = -1;
+        for (int room = 0; room < cost.length; room++) {
+            if (cost[room] != INF && (best == -1 || cost[room] < cost[best])) best = room;
+        }
+        if (best == -1) { // no START, nothing is reachable
+            committedLayer = layer;
+            return;
+        }
+        int target = layer - maxLag / 2;
+        for (int i = layer; i > target; i--) best = ancestor[i % window][best];
+        commit(best, target);
+
+        Arrays.fill(cost, INF);
+        cost[best] = 0;
+        for (int i = target + 1; i <= layer; i++) {
+            int[] swap = prev;
+            prev = cost;
+            cost = swap;
+            advance(i);
+        }
+    }
+
+    private void commit(int room, int i) {
+        emitPath(room, i);
+        committedLayer = i;
+        committedRoom = room;
+    }
+
+    /**
+     * Send the rooms from the committed point to (room, i) to the sink.
+     *
+     * @return false, sending nothing, if the path does not pass the committed point
+     */
+    private boolean emitPath(int room, int i) {
+        int rooms = cost.length;
+        List<Integer> path = new ArrayList<>();
+        while (i > committedLayer || room != committedRoom) {
+            if (i == committedLayer && i > 0) return false;
+            path.add(room);
+            int code = i == 0 ? first.get(room) : codes.get((long) (i % window) * rooms + room);
+            int how = code & 3;
+            if (how == SignalRecoveryEngine.NONE) break;
+            int from = how == SignalRecoveryEngine.DELETE ? room : engine.from(room, code);
+            if (how != SignalRecoveryEngine.INSERT) i--;
+            room = from;
+        }
+        Collections.reverse(path);
+        for (int r : path) emit(r);
+        return true;
+    }
+
+    /**
+     * Pass a room on, listing a room repeated by deletes once. A leading START
+     * is held until the next room, as an unreachable exit would drop it.
+     */
+    private void emit(int room) {
+        if (room == lastEmitted) return;
+        if (lastEmitted == -1 && room == engine.startRoom()) {
+            lastEmitted = room;
+            startHeld = true;
+            return;
+        }
+        if (startHeld) send(engine.startRoom());
+        lastEmitted = room;
+        send(room);
+    }
+
+    private void send(int room) {
+        startHeld = false;
+        sink.accept(engine.name(room));
+    }
+}
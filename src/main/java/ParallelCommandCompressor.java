@@ -0,0 +1,212 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Compresses independent command sequences in parallel chunks.
+ * Each chunk runs on a ForkJoinPool worker against its own copy of the starting
+ * trie and is written as a bit-packed segment (see {@link BitPackedCodeWriter}).
+ * Segments share no dictionary state, so each one decodes on its own. The
+ * price is that patterns learned in one chunk cannot be reused by another;
+ * {@link Result#overheadVersus(long)} reports that cost.
+ * <p>
+ * Framed layout: magic (4 bytes), segment count (4 bytes), then per segment its
+ * sequence count (4 bytes), payload length (4 bytes) and payload.
+ */
+public class ParallelCommandCompressor {
+    public static final int MAGIC = 0x4C5A5750; // "LZWP"
+
+    private final ForkJoinPool pool;
+    private final int sequencesPerChunk;
+    private final DictionaryPolicy policy;
+    private final int capacity;
+
+    /**
+     * @param pool              pool running the chunk encoders
+     * @param sequencesPerChunk number of sequences per independently decodable segment
+     */
+    public ParallelCommandCompressor(ForkJoinPool pool, int sequencesPerChunk) {
+        this(pool, sequencesPerChunk, DictionaryPolicy.UNBOUNDED, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param pool              pool running the chunk encoders
+     * @param sequencesPerChunk number of sequences per independently decodable segment
+     * @param policy            policy of each chunk's codebook once full
+     * @param capacity          maximum number of codes per chunk codebook
+     */
+    public ParallelCommandCompressor(ForkJoinPool pool, int sequencesPerChunk,
+                                     DictionaryPolicy policy, int capacity) {
+        if (sequencesPerChunk <= 0) {
+            throw new IllegalArgumentException("sequencesPerChunk must be positive");
+        }
+        this.pool = pool;
+        this.sequencesPerChunk = sequencesPerChunk;
+        this.policy = policy;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Outcome of a parallel run.
+     */
+    public static class Result {
+        /**
+         * The framed segments, positioned at the start.
+         */
+        public final ByteBuffer framed;
+        public final int segments;
+        public final long tokens;
+        public final long codes;
+
+        Result(ByteBuffer framed, int segments, long tokens, long codes) {
+            this.framed = framed;
+            this.segments = segments;
+            this.tokens = tokens;
+            this.codes = codes;
+        }
+
+        /**
+         * @return total framed size in bytes, headers included
+         */
+        public long bytes() {
+            return framed.limit();
+        }
+
+        /**
+         * Relative size increase caused by splitting the input.
+         *
+         * @param sequentialBytes size of the same input compressed as one stream
+         * @return e.g. 0.05 if the framed output is 5% larger
+         */
+        public double overheadVersus(long sequentialBytes) {
+            return (double) (bytes() - sequentialBytes) / sequentialBytes;
+        }
+    }
+
+    /**
+     * Compress the sequences in parallel. The starting trie is only read; the
+     * caller's copy is not grown.
+     *
+     * @param start     trie every chunk starts from
+     * @param sequences command sequences, each a list of string tokens
+     * @return the framed segments and their statistics
+     */
+    public Result compress(DLBNode start, List<List<String>> sequences) {
+        List<ForkJoinTask<Segment>> tasks = new ArrayList<>();
+        for (int from = 0; from < sequences.size(); from += sequencesPerChunk) {
+            List<List<String>> chunk = sequences.subList(from, Math.min(from + sequencesPerChunk, sequences.size()));
+            tasks.add(pool.submit(() -> encodeChunk(start, chunk)));
+        }
+
+        long tokens = 0;
+        for (List<String> sequence : sequences) tokens += sequence.size();
+
+        List<Segment> segments = new ArrayList<>();
+        int size = 8;
+        for (ForkJoinTask<Segment> task : tasks) {
+            Segment segment = task.join();
+            segments.add(segment);
+            size += 8 + segment.payload.length;
+        }
+
+        ByteBuffer framed = ByteBuffer.allocate(size);
+        framed.putInt(MAGIC).putInt(segments.size());
+        long codes = 0;
+        for (Segment segment : segments) {
+            framed.putInt(segment.sequences).putInt(segment.payload.length).put(segment.payload);
+            codes += segment.codes;
+        }
+        framed.flip();
+        return new Result(framed, segments.size(), tokens, codes);
+    }
+
+    /**
+     * Decode a framed stream produced by {@link #compress}.
+     *
+     * @param framed framed segments, read from the buffer's position
+     * @param start  the same starting trie the compressor was given
+     * @return the command sequences in their original order
+     */
+    public static List<List<String>> decode(ByteBuffer framed, DLBNode start) {
+        ByteBuffer in = framed.duplicate();
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a framed LZW stream");
+        }
+        int segments = in.getInt();
+
+        List<List<String>> sequences = new ArrayList<>();
+        for (int s = 0; s < segments; s++) {
+            int count = in.getInt();
+            int length = in.getInt();
+            ByteBuffer payload = in.slice();
+            payload.limit(length);
+            in.position(in.position() + length);
+
+            List<List<String>> decoded = new BitPackedCodeReader(payload, new LzwDecoder(start)).readAll();
+            if (decoded.size() != count) {
+                throw new IllegalStateException("segment " + s + " holds " + decoded.size()
+                        + " sequences, header says " + count);
+            }
+            sequences.addAll(decoded);
+        }
+        return sequences;
+    }
+
+    private static class Segment {
+        final int sequences;
+        final byte[] payload;
+        final long codes;
+
+        Segment(int sequences, byte[] payload, long codes) {
+            this.sequences = sequences;
+            this.payload = payload;
+            this.codes = codes;
+        }
+    }
+
+    private Segment encodeChunk(DLBNode start, List<List<String>> chunk) {
+        CommandCodebook book = CommandCodebook.wrap(copy(start), policy, capacity);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitPackedCodeWriter writer = new BitPackedCodeWriter(bytes, book);
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, writer);
+        for (List<String> sequence : chunk) {
+            encoder.accept(sequence);
+            encoder.endSequence();
+        }
+        writer.finish();
+        return new Segment(chunk.size(), bytes.toByteArray(), writer.codesWritten());
+    }
+
+    /**
+     * Deep-copy a DLB trie so a worker can grow it privately.
+     */
+    private static DLBNode copy(DLBNode root) {
+        if (root == null) return null;
+
+        DLBNode copyRoot = new DLBNode(root.token);
+        copyRoot.code = root.code;
+
+        // pairs of (original, copy) whose child and sibling links still need copying
+        Deque<DLBNode[]> stack = new ArrayDeque<>();
+        stack.push(new DLBNode[] { root, copyRoot });
+        while (!stack.isEmpty()) {
+            DLBNode[] pair = stack.pop();
+            if (pair[0].sibling != null) {
+                pair[1].sibling = new DLBNode(pair[0].sibling.token);
+                pair[1].sibling.code = pair[0].sibling.code;
+                stack.push(new DLBNode[] { pair[0].sibling, pair[1].sibling });
+            }
+            if (pair[0].child != null) {
+                pair[1].child = new DLBNode(pair[0].child.token);
+                pair[1].child.code = pair[0].child.code;
+                stack.push(new DLBNode[] { pair[0].child, pair[1].child });
+            }
+        }
+        return copyRoot;
+    }
+}
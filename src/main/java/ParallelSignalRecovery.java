@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Decodes many corrupted logs against one compiled room graph on a
+ * ForkJoinPool. Each log is one task, decoded with
+ * {@link SignalRecoveryEngine#recover} on its worker's own buffers, which are
+ * kept in a thread-local and reused by the next log on that worker. So that
+ * every worker can hold a full backpointer table at once, each gets an equal
+ * share of the engine's 64 MB limit before it switches to checkpoints; paths
+ * are the same either way.
+ * <p>
+ * A single large log goes through {@link #recover}, which splits the per-room
+ * pass of each token over the pool instead. The insertion pass of a token is
+ * sequential, so that speedup is bounded by its share of the work.
+ */
+public class ParallelSignalRecovery {
+    private final SignalRecoveryEngine engine;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<SignalRecoveryEngine.Workspace> workspaces;
+    private final SignalRecoveryEngine.Workspace shared;
+
+    /**
+     * @param engine compiled room graph, only read
+     * @param pool   pool running the decoders
+     */
+    public ParallelSignalRecovery(SignalRecoveryEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+        workspaces = ThreadLocal.withInitial(() -> engine.newWorkspace(null));
+        shared = engine.newWorkspace(pool);
+    }
+
+    /**
+     * Decode every log in parallel.
+     *
+     * @param traces observed room labels, one list per log
+     * @param exits  exit room of each log
+     * @return recovered paths in the order of the logs, each as for
+     *         {@link SignalRecoveryEngine#recover(List, String)}
+     * @throws IllegalArgumentException if the lists differ in length
+     */
+    public List<List<String>> recoverAll(List<List<String>> traces, List<String> exits) {
+        if (traces.size() != exits.size()) throw new IllegalArgumentException("one exit per trace expected");
+        long budget = SignalRecoveryEngine.FULL_TABLE_BITS / pool.getParallelism();
+        List<ForkJoinTask<List<String>>> tasks = new ArrayList<>();
+        for (int t = 0; t < traces.size(); t++) {
+            List<String> trace = traces.get(t);
+            String exit = exits.get(t);
+            tasks.add(pool.submit(() -> engine.recover(trace, exit,
+                    engine.checkpointInterval(trace.size(), budget), workspaces.get())));
+        }
+
+        List<List<String>> paths = new ArrayList<>();
+        for (ForkJoinTask<List<String>> task : tasks) paths.add(task.join());
+        return paths;
+    }
+
+    /**
+     * Decode one log, splitting the rooms of each token over the pool when
+     * the graph is large enough for that to pay off. Calls are serialised, as
+     * they share one set of buffers.
+     *
+     * @param corrupted observed room labels
+     * @param exitRoom  room the path must end in
+     * @return the path as for {@link SignalRecoveryEngine#recover(List, String)}
+     */
+    public synchronized List<String> recover(List<String> corrupted, String exitRoom) {
+        int every = engine.checkpointInterval(corrupted.size(), SignalRecoveryEngine.FULL_TABLE_BITS);
+        return engine.recover(corrupted, exitRoom, every, shared);
+    }
+}
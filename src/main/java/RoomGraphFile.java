@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary room graph files, so large maps are parsed and compiled once and
+ * then loaded without building an adjacency map.
+ * <p>
+ * Loading maps the file with {@link FileChannel#map}. The CSR arrays of the
+ * returned {@link CompiledRoomGraph} are views of the mapping, and room names
+ * are looked up in the mapped string table and hash index on demand, so the
+ * heap does not grow with the graph.
+ * <p>
+ * Layout (big-endian): magic, format version, room count, listed rooms, edge
+ * count, max weight, hash slots, name table length, CRC32 of everything after
+ * the header (nine 4-byte ints); then the edge offsets (rooms + 1), targets,
+ * weights, name offsets (rooms + 1) and hash slots (room id + 1, 0 if empty)
+ * as ints; then the UTF-8 name table, zero-padded to a multiple of 4.
+ */
+public class RoomGraphFile {
+    public static final int MAGIC = 0x52474346; // "RGCF"
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 9 * 4;
+    private static final int CHUNK_BYTES = 1 << 16;
+
+    private RoomGraphFile() {
+    }
+
+    /**
+     * Write a graph, replacing any existing file.
+     *
+     * @param graph graph to save
+     * @param file  destination path
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a section would not fit in one mapping
+     */
+    public static void write(CompiledRoomGraph graph, Path file) throws IOException {
+        int rooms = graph.roomCount();
+        int edges = graph.edgeCount();
+        long slots = hashSlots(rooms);
+        byte[][] nameBytes = new byte[rooms][];
+        long tableLength = 0;
+        for (int room = 0; room < rooms; room++) {
+            nameBytes[room] = graph.name(room).getBytes(StandardCharsets.UTF_8);
+            tableLength += nameBytes[room].length;
+        }
+        if (edges > Integer.MAX_VALUE / 4 || slots > Integer.MAX_VALUE / 4 || tableLength > Integer.MAX_VALUE - 3) {
+            throw new IllegalArgumentException("graph too large for one file: " + edges + " edges, "
+                    + tableLength + " name bytes");
+        }
+
+        // open addressing on the name hash, as the loader will probe it
+        int[] hash = new int[(int) slots];
+        for (int room = 0; room < rooms; room++) {
+            int slot = slot(graph.name(room), hash.length);
+            while (hash[slot] != 0) slot = (slot + 1) & (hash.length - 1);
+            hash[slot] = room + 1;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Body body = new Body(channel);
+            for (int room = 0; room <= rooms; room++) {
+                body.putInt(room < rooms ? graph.edgeStart(room) : edges);
+            }
+            for (int e = 0; e < edges; e++) body.putInt(graph.edgeTarget(e));
+            for (int e = 0; e < edges; e++) body.putInt(graph.edgeWeight(e));
+            int nameOffset = 0;
+            for (int room = 0; room <= rooms; room++) {
+                body.putInt(nameOffset);
+                if (room < rooms) nameOffset += nameBytes[room].length;
+            }
+            for (int h : hash) body.putInt(h);
+            for (byte[] bytes : nameBytes) body.put(bytes);
+            body.pad();
+            body.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(rooms).putInt(graph.listedRooms()).putInt(edges)
+                    .putInt(graph.maxWeight()).putInt(hash.length).putInt((int) tableLength)
+                    .putInt((int) body.crc.getValue());
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * Map a graph file and verify its checksum.
+     *
+     * @param file graph file path
+     * @return a graph whose arrays are views of the mapped file
+     * @throws IOException if the file cannot be read or is not a valid graph file
+     */
+    public static CompiledRoomGraph load(Path file) throws IOException {
+        return load(file, true);
+    }
+
+    /**
+     * Map a graph file.
+     *
+     * @param file           graph file path
+     * @param verifyChecksum false to skip the CRC; offsets, targets, weights
+     *                       and the name index are still range-checked
+     * @return a graph whose arrays are views of the mapped file
+     * @throws IOException if the file cannot be read or is not a valid graph file
+     */
+    public static CompiledRoomGraph load(Path file, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(file + " is not a room graph file");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a room graph file");
+            }
+            int version = header.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("unsupported room graph version " + version);
+            }
+            int rooms = header.getInt(8);
+            int listedRooms = header.getInt(12);
+            int edges = header.getInt(16);
+            int maxWeight = header.getInt(20);
+            int slots = header.getInt(24);
+            int tableLength = header.getInt(28);
+            int checksum = header.getInt(32);
+
+            long expectedLength = HEADER_BYTES + 4L * (rooms + 1) * 2 + 8L * edges + 4L * slots
+                    + ((tableLength + 3L) & ~3L);
+            if (rooms < 0 || listedRooms < 0 || listedRooms > rooms || edges < 0 || tableLength < 0
+                    || slots < 1 || Integer.bitCount(slots) != 1 || channel.size() != expectedLength) {
+                throw new IOException("room graph file is " + channel.size() + " bytes, header implies "
+                        + expectedLength);
+            }
+
+            // one mapping per section keeps each under the 2 GB limit of a buffer
+            long position = HEADER_BYTES;
+            MappedByteBuffer[] sections = new MappedByteBuffer[6];
+            long[] lengths = { 4L * (rooms + 1), 4L * edges, 4L * edges, 4L * (rooms + 1), 4L * slots,
+                    (tableLength + 3L) & ~3L };
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, lengths[i]);
+                position += lengths[i];
+            }
+
+            if (verifyChecksum) {
+                CRC32 crc = new CRC32();
+                for (MappedByteBuffer section : sections) crc.update(section.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException("room graph checksum mismatch, file is corrupt");
+                }
+            }
+
+            IntBuffer offsets = sections[0].asIntBuffer();
+            IntBuffer targets = sections[1].asIntBuffer();
+            IntBuffer weights = sections[2].asIntBuffer();
+            IntBuffer nameOffsets = sections[3].asIntBuffer();
+            IntBuffer hash = sections[4].asIntBuffer();
+            checkRange("edge offsets", offsets, edges);
+            checkRange("name offsets", nameOffsets, tableLength);
+            for (int e = 0; e < edges; e++) {
+                if (targets.get(e) < 0 || targets.get(e) >= rooms) {
+                    throw new IOException("room graph edge " + e + " targets room " + targets.get(e) + " of " + rooms);
+                }
+                if (weights.get(e) < 0 || weights.get(e) > maxWeight) {
+                    throw new IOException("room graph edge " + e + " weighs " + weights.get(e) + ", max " + maxWeight);
+                }
+            }
+            for (int slot = 0; slot < slots; slot++) {
+                if (hash.get(slot) < 0 || hash.get(slot) > rooms) {
+                    throw new IOException("room graph hash slot " + slot + " holds " + hash.get(slot));
+                }
+            }
+
+            MappedNames names = new MappedNames(rooms, nameOffsets, hash, sections[5]);
+            return new CompiledRoomGraph(names, listedRooms, offsets, targets, weights, maxWeight);
+        }
+    }
+
+    /**
+     * Offsets must start at 0, never decrease and end at the section's size,
+     * so every range they give lies inside it.
+     */
+    private static void checkRange(String what, IntBuffer offsets, int end) throws IOException {
+        int last = offsets.limit() - 1;
+        if (offsets.get(0) != 0 || offsets.get(last) != end) {
+            throw new IOException("room graph " + what + " run from " + offsets.get(0) + " to "
+                    + offsets.get(last) + ", expected 0 to " + end);
+        }
+        for (int i = 0; i < last; i++) {
+            if (offsets.get(i) > offsets.get(i + 1)) {
+                throw new IOException("room graph " + what + " decrease at " + i);
+            }
+        }
+    }
+
+    /**
+     * @return power of two with at most half the slots in use
+     */
+    private static long hashSlots(int rooms) {
+        return Math.max(2L, (long) Integer.highestOneBit(Math.max(1, rooms)) << 2);
+    }
+
+    private static int slot(String name, int slots) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (slots - 1);
+    }
+
+    /**
+     * Writes the body through a reusable buffer, updating the checksum as it goes.
+     */
+    private static class Body {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES);
+        private final CRC32 crc = new CRC32();
+        private long position = HEADER_BYTES;
+
+        Body(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) flush();
+            buffer.putInt(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int from = 0; from < bytes.length; ) {
+                if (!buffer.hasRemaining()) flush();
+                int n = Math.min(buffer.remaining(), bytes.length - from);
+                buffer.put(bytes, from, n);
+                from += n;
+            }
+        }
+
+        void pad() throws IOException {
+            while ((position + buffer.position()) % 4 != 0) put(new byte[1]);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) position += channel.write(buffer, position);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Room names read from the mapped string table and hash index.
+     */
+    private static class MappedNames implements CompiledRoomGraph.Names {
+        private final int rooms;
+        private final IntBuffer nameOffsets;
+        private final IntBuffer hash;
+        private final ByteBuffer table;
+
+        MappedNames(int rooms, IntBuffer nameOffsets, IntBuffer hash, ByteBuffer table) {
+            this.rooms = rooms;
+            this.nameOffsets = nameOffsets;
+            this.hash = hash;
+            this.table = table;
+        }
+
+        @Override
+        public int count() {
+            return rooms;
+        }
+
+        @Override
+        public String name(int room) {
+            return new String(bytes(room), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int id(String name) {
+            byte[] wanted = name.getBytes(StandardCharsets.UTF_8);
+            int slots = hash.limit();
+            // a written index always has an empty slot, but a file loaded without its checksum may not
+            int slot = slot(name, slots);
+            for (int probe = 0; probe < slots; probe++, slot = (slot + 1) & (slots - 1)) {
+                int room = hash.get(slot) - 1;
+                if (room == -1) return -1;
+                if (matches(room, wanted)) return room;
+            }
+            return -1;
+        }
+
+        private boolean matches(int room, byte[] wanted) {
+            int from = nameOffsets.get(room);
+            if (nameOffsets.get(room + 1) - from != wanted.length) return false;
+            for (int i = 0; i < wanted.length; i++) {
+                if (table.get(from + i) != wanted[i]) return false;
+            }
+            return true;
+        }
+
+        private byte[] bytes(int room) {
+            int from = nameOffsets.get(room);
+            byte[] bytes = new byte[nameOffsets.get(room + 1) - from];
+            ByteBuffer view = table.duplicate();
+            view.position(from);
+            view.get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,590 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Edit-distance decoding of a corrupted room trace over the room graph. After
+ * {@code i} tokens the robot is in some room; a token can be matched or
+ * substituted by moving along an edge (cost 0 or 1), deleted by staying put
+ * (cost 1), and a room the log missed can be inserted by moving along an edge
+ * without consuming a token (cost 1). The path starts at {@code START} with
+ * cost 0 and must end at the exit room.
+ * <p>
+ * The graph is compiled once into dense ids with forward and predecessor
+ * (reverse) CSR arrays. Each token costs one pass over the predecessors for
+ * matches and deletes, then a shortest-path pass over the unit-cost insertion
+ * edges. That pass merges the rooms, counting-sorted by their consuming cost,
+ * with a FIFO of rooms reached by insertion, so rooms settle in cost order as
+ * in Dial's algorithm. Work per token is O(V + E) instead of a scan of every
+ * room pair.
+ * <p>
+ * Only two cost rows are live. Backpointers are bit-packed codes of a move
+ * type and a predecessor index, {@code 2 + log2(max in-degree)} bits per room
+ * and token. When the full table would be large, only every k-th cost row is
+ * kept and the backpointers of one block of k tokens at a time are recomputed
+ * while walking back, which takes O(V * (n / k + k)) memory and about twice
+ * the forward work for the same path.
+ * <p>
+ * Given a pool, the match and delete pass of each token is split over room
+ * ranges on large graphs; the insertion pass stays sequential.
+ * <p>
+ * Ties go to deletes, then to matches from the earliest listed predecessor,
+ * then to insertions. Only keys of the graph map are rooms.
+ */
+public class SignalRecoveryEngine {
+    public static final String START = "START";
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int INF = UNREACHABLE;
+
+    // move type in the low two bits of a backpointer code, predecessor index above
+    static final int NONE = 0;
+    static final int MATCH = 1;
+    static final int DELETE = 2;
+    static final int INSERT = 3;
+
+    // backpointer tables up to this many bits are kept whole (64 MB)
+    static final long FULL_TABLE_BITS = 1L << 29;
+
+    // graphs with fewer rooms decode each token on one thread; also the split size
+    static final int PARALLEL_ROOMS = 1 << 13;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int start;
+    private final int[] succOffsets;
+    private final int[] succ;
+    private final int[] predOffsets;
+    private final int[] pred;
+    private final int[] succPredIndex; // forward edge -> its position in the target's predecessor list
+    private final int codeBits;
+
+    /**
+     * Compile a room graph.
+     *
+     * @param roomGraph map from room label to the labels it leads to
+     */
+    public SignalRecoveryEngine(Map<String, List<String>> roomGraph) {
+        int n = roomGraph.size();
+        names = new String[n];
+        ids = new HashMap<>();
+        for (String room : roomGraph.keySet()) {
+            names[ids.size()] = room;
+            ids.put(room, ids.size());
+        }
+        start = ids.getOrDefault(START, -1);
+
+        // 1) forward CSR over rooms that are keys; duplicate edges are kept, they change nothing
+        succOffsets = new int[n + 1];
+        int[] targets = new int[16];
+        int e = 0;
+        for (int p = 0; p < n; p++) {
+            succOffsets[p] = e;
+            List<String> next = roomGraph.get(names[p]);
+            if (next == null) continue;
+            for (String label : next) {
+                Integer r = ids.get(label);
+                if (r == null) continue;
+                if (e == targets.length) targets = Arrays.copyOf(targets, e * 2);
+                targets[e++] = r;
+            }
+        }
+        succOffsets[n] = e;
+        succ = Arrays.copyOf(targets, e);
+
+        // 2) predecessor CSR; filling sources in id order keeps each list in map order
+        predOffsets = new int[n + 1];
+        for (int i = 0; i < e; i++) predOffsets[succ[i] + 1]++;
+        for (int r = 0; r < n; r++) predOffsets[r + 1] += predOffsets[r];
+        pred = new int[e];
+        succPredIndex = new int[e];
+        int[] fill = Arrays.copyOf(predOffsets, n);
+        int maxInDegree = 0;
+        for (int p = 0; p < n; p++) {
+            for (int i = succOffsets[p]; i < succOffsets[p + 1]; i++) {
+                int slot = fill[succ[i]]++;
+                pred[slot] = p;
+                succPredIndex[i] = slot - predOffsets[succ[i]];
+                maxInDegree = Math.max(maxInDegree, succPredIndex[i] + 1);
+            }
+        }
+        codeBits = 2 + (32 - Integer.numberOfLeadingZeros(Math.max(0, maxInDegree - 1)));
+    }
+
+    /**
+     * Recover the most likely room path. Backpointers for the whole trace are
+     * kept if they fit in 64 MB, otherwise they are recomputed from a cost row
+     * saved every sqrt(n) tokens.
+     *
+     * @param corrupted observed room labels
+     * @param exitRoom  room the path must end in
+     * @return rooms from the first one after START to the exit, with a room
+     *         repeated by deletes listed once; just the exit if it cannot be
+     *         reached from START, and empty if the exit is not a room
+     */
+    public List<String> recover(List<String> corrupted, String exitRoom) {
+        return recover(corrupted, exitRoom, checkpointInterval(corrupted.size(), FULL_TABLE_BITS));
+    }
+
+    /**
+     * Recover the most likely room path with a chosen checkpoint interval. The
+     * path does not depend on the interval.
+     *
+     * @param corrupted       observed room labels
+     * @param exitRoom        room the path must end in
+     * @param checkpointEvery tokens between saved cost rows; the trace length
+     *                        or more keeps every backpointer
+     * @return the path as for {@link #recover(List, String)}
+     * @throws IllegalArgumentException if checkpointEvery is not positive
+     */
+    public List<String> recover(List<String> corrupted, String exitRoom, int checkpointEvery) {
+        return recover(corrupted, exitRoom, checkpointEvery, new Workspace(null));
+    }
+
+    /**
+     * Recover with caller-owned buffers, which keep their size for the next
+     * trace, and the workspace's pool, if any, for the per-room pass.
+     */
+    List<String> recover(List<String> corrupted, String exitRoom, int checkpointEvery, Workspace ws) {
+        if (checkpointEvery < 1) throw new IllegalArgumentException("checkpoint interval must be positive");
+        Integer exit = ids.get(exitRoom);
+        if (exit == null) return Collections.emptyList();
+        int[] token = tokens(corrupted);
+        int n = token.length;
+        int rooms = names.length;
+        int every = Math.min(checkpointEvery, Math.max(n, 1));
+        boolean keepAll = every >= n;
+
+        // 1) forward pass; backpointers go straight to the block when it holds them all
+        Closure closure = ws.closure;
+        PackedCodes first = ws.first;
+        PackedCodes block = ws.block((long) every * rooms);
+        int[][] checkpoints = new int[n / every + 1][];
+        int[] prev = ws.prev;
+        int[] cost = ws.cost;
+        begin(cost, closure, first);
+        checkpoints[0] = cost.clone();
+        for (int i = 1; i <= n; i++) {
+            int[] swap = prev;
+            prev = cost;
+            cost = swap;
+            layer(prev, cost, token[i - 1], closure, keepAll ? block : null, (long) (i - 1) * rooms, ws.pool);
+            if (!keepAll && i % every == 0) checkpoints[i / every] = cost.clone();
+        }
+
+        // 2) walk back from the exit, replaying each block of tokens once
+        List<String> path = new ArrayList<>();
+        int room = exit;
+        int last = -1;
+        int i = n;
+        int loaded = keepAll ? 0 : -1;
+        while (i > 0 || room != start) {
+            if (room != last) path.add(names[room]);
+            last = room;
+            int code;
+            if (i == 0) {
+                code = first.get(room);
+            } else {
+                int blockStart = (i - 1) / every * every;
+                if (blockStart != loaded) {
+                    replay(checkpoints[blockStart / every], token, blockStart, Math.min(blockStart + every, n),
+                            ws, block);
+                    loaded = blockStart;
+                }
+                code = block.get((long) (i - blockStart - 1) * rooms + room);
+            }
+            int how = code & 3;
+            if (how == NONE) break;
+            int from = how == DELETE ? room : from(room, code);
+            if (how != INSERT) i--;
+            room = from;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Edit cost of the best path, without keeping backpointers.
+     *
+     * @param corrupted observed room labels
+     * @param exitRoom  room the path must end in
+     * @return the number of edits, or {@link #UNREACHABLE} if the exit is not a
+     *         room or cannot be reached from START
+     */
+    public int cost(List<String> corrupted, String exitRoom) {
+        Integer exit = ids.get(exitRoom);
+        if (exit == null) return UNREACHABLE;
+        int rooms = names.length;
+        Closure closure = new Closure(rooms);
+        int[] prev = new int[rooms];
+        int[] cost = new int[rooms];
+        begin(cost, closure, null);
+        for (int token : tokens(corrupted)) {
+            int[] swap = prev;
+            prev = cost;
+            cost = swap;
+            layer(prev, cost, token, closure, null, 0);
+        }
+        return cost[exit];
+    }
+
+    /**
+     * Tokens between checkpoints: the whole trace if its backpointers fit in
+     * {@code budgetBits}, otherwise sqrt(n).
+     */
+    int checkpointInterval(int n, long budgetBits) {
+        boolean fits = (long) n * names.length * codeBits <= budgetBits;
+        return fits ? Math.max(n, 1) : (int) Math.ceil(Math.sqrt(n));
+    }
+
+    int roomCount() {
+        return names.length;
+    }
+
+    String name(int room) {
+        return names[room];
+    }
+
+    /**
+     * @return the room's id, or -1 for a label that is not a room
+     */
+    int id(String label) {
+        return ids.getOrDefault(label, -1);
+    }
+
+    /**
+     * @return id of START, or -1 if the graph has no START room
+     */
+    int startRoom() {
+        return start;
+    }
+
+    /**
+     * @return number of rooms with an edge into the room
+     */
+    int inDegree(int room) {
+        return predOffsets[room + 1] - predOffsets[room];
+    }
+
+    int succStart(int room) {
+        return succOffsets[room];
+    }
+
+    int succEnd(int room) {
+        return succOffsets[room + 1];
+    }
+
+    int succ(int edge) {
+        return succ[edge];
+    }
+
+    /**
+     * @return position of a forward edge's source in its target's predecessor list
+     */
+    int predIndex(int edge) {
+        return succPredIndex[edge];
+    }
+
+    /**
+     * @return the room a non-delete backpointer code points back to
+     */
+    int from(int room, int code) {
+        return pred[predOffsets[room] + (code >>> 2)];
+    }
+
+    Closure newClosure() {
+        return new Closure(names.length);
+    }
+
+    PackedCodes newCodes(long cells) {
+        return new PackedCodes(cells, codeBits);
+    }
+
+    /**
+     * @param pool pool for the per-room pass of large graphs, or null to stay on the calling thread
+     */
+    Workspace newWorkspace(ForkJoinPool pool) {
+        return new Workspace(pool);
+    }
+
+    private int[] tokens(List<String> corrupted) {
+        int[] token = new int[corrupted.size()];
+        for (int i = 0; i < token.length; i++) token[i] = ids.getOrDefault(corrupted.get(i), -1);
+        return token;
+    }
+
+    /**
+     * Layer 0: START at cost 0 and whatever insertions reach from there.
+     */
+    void begin(int[] cost, Closure closure, PackedCodes codes) {
+        Arrays.fill(cost, INF);
+        if (codes != null) {
+            for (int r = 0; r < cost.length; r++) codes.set(r, NONE);
+        }
+        if (start != -1) cost[start] = 0;
+        closure.run(cost, codes, 0);
+    }
+
+    /**
+     * Recompute the backpointers of tokens from + 1 .. to into the block,
+     * starting from the cost row saved after token {@code from}.
+     */
+    private void replay(int[] checkpoint, int[] token, int from, int to, Workspace ws, PackedCodes block) {
+        int[] prev = ws.prev;
+        int[] cost = ws.cost;
+        System.arraycopy(checkpoint, 0, cost, 0, cost.length);
+        for (int i = from + 1; i <= to; i++) {
+            int[] swap = prev;
+            prev = cost;
+            cost = swap;
+            layer(prev, cost, token[i - 1], ws.closure, block, (long) (i - from - 1) * cost.length, ws.pool);
+        }
+    }
+
+    /**
+     * One token: consuming moves, then insertions. Codes, if kept, are
+     * written to cells {@code base .. base + V - 1}.
+     */
+    void layer(int[] prev, int[] cost, int token, Closure closure, PackedCodes codes, long base) {
+        layer(prev, cost, token, closure, codes, base, null);
+    }
+
+    private void layer(int[] prev, int[] cost, int token, Closure closure, PackedCodes codes, long base,
+                       ForkJoinPool pool) {
+        if (pool == null || cost.length < 2 * PARALLEL_ROOMS) {
+            consume(prev, cost, token, codes, base, 0, cost.length);
+        } else {
+            pool.invoke(new ConsumeRange(prev, cost, token, codes, base, 0, cost.length));
+        }
+        closure.run(cost, codes, base);
+    }
+
+    /**
+     * Best cost of reaching rooms from .. to - 1 while consuming the next token.
+     */
+    private void consume(int[] prev, int[] cost, int token, PackedCodes codes, long base, int from, int to) {
+        for (int r = from; r < to; r++) {
+            int best = INF;
+            int code = NONE;
+            if (prev[r] != INF) {
+                best = prev[r] + 1;
+                code = DELETE;
+            }
+            int mismatch = r == token ? 0 : 1;
+            for (int i = predOffsets[r]; i < predOffsets[r + 1]; i++) {
+                int p = pred[i];
+                if (prev[p] != INF && prev[p] + mismatch < best) {
+                    best = prev[p] + mismatch;
+                    code = (i - predOffsets[r]) << 2 | MATCH;
+                }
+            }
+            cost[r] = best;
+            if (codes != null) codes.set(base + r, code);
+        }
+    }
+
+    /**
+     * The per-room pass split in halves down to PARALLEL_ROOMS rooms. Splits
+     * fall on cells that start a word of the packed codes, so no two ranges
+     * write the same long.
+     */
+    private class ConsumeRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] prev;
+        private final int[] cost;
+        private final int token;
+        private final PackedCodes codes;
+        private final long base;
+        private final int from;
+        private final int to;
+
+        ConsumeRange(int[] prev, int[] cost, int token, PackedCodes codes, long base, int from, int to) {
+            this.prev = prev;
+            this.cost = cost;
+            this.token = token;
+            this.codes = codes;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int mid = (int) (((base + (from + to) / 2) & ~63L) - base);
+            if (to - from <= PARALLEL_ROOMS || mid <= from || mid >= to) {
+                consume(prev, cost, token, codes, base, from, to);
+                return;
+            }
+            invokeAll(new ConsumeRange(prev, cost, token, codes, base, from, mid),
+                    new ConsumeRange(prev, cost, token, codes, base, mid, to));
+        }
+    }
+
+    /**
+     * Buffers for one trace at a time, kept by a caller that decodes many.
+     * The backpointer block grows to the largest trace seen.
+     */
+    class Workspace {
+        final ForkJoinPool pool;
+        final Closure closure;
+        final PackedCodes first;
+        final int[] prev;
+        final int[] cost;
+        private PackedCodes block;
+
+        Workspace(ForkJoinPool pool) {
+            this.pool = pool;
+            closure = new Closure(names.length);
+            first = new PackedCodes(names.length, codeBits);
+            prev = new int[names.length];
+            cost = new int[names.length];
+        }
+
+        PackedCodes block(long cells) {
+            if (block == null || block.capacity() < cells) block = new PackedCodes(cells, codeBits);
+            return block;
+        }
+    }
+
+    /**
+     * Unit-cost shortest paths over insertion edges within one token layer.
+     * Scratch arrays are reused across layers. After a run, {@code order}
+     * holds the reachable rooms in the order they settled, so every room
+     * comes after the room it was inserted from.
+     */
+    class Closure {
+        private final long[] sources;
+        private final int[] fifo;
+        private final boolean[] settled;
+        final int[] order;
+        int settledCount;
+        private int[] counts = new int[16];
+
+        Closure(int rooms) {
+            sources = new long[rooms];
+            fifo = new int[rooms];
+            settled = new boolean[rooms];
+            order = new int[rooms];
+        }
+
+        void run(int[] cost, PackedCodes codes, long base) {
+            int count = sortByCost(cost);
+            Arrays.fill(settled, false);
+            settledCount = 0;
+
+            // settle in cost order: next sorted source or FIFO head, sources first on ties
+            int next = 0;
+            int head = 0;
+            int tail = 0;
+            while (next < count || head < tail) {
+                int room;
+                if (head == tail || (next < count && (int) (sources[next] >>> 32) <= cost[fifo[head]])) {
+                    room = (int) sources[next++];
+                } else {
+                    room = fifo[head++];
+                }
+                if (settled[room]) continue;
+                settled[room] = true;
+                order[settledCount++] = room;
+
+                int reach = cost[room] + 1;
+                for (int i = succOffsets[room]; i < succOffsets[room + 1]; i++) {
+                    int r = succ[i];
+                    if (r == room || settled[r] || reach >= cost[r]) continue;
+                    cost[r] = reach;
+                    if (codes != null) codes.set(base + r, succPredIndex[i] << 2 | INSERT);
+                    fifo[tail++] = r;
+                }
+            }
+        }
+
+        /**
+         * Fill sources with (cost, room) of the reachable rooms in cost order.
+         * Costs in a layer usually span a narrow range, so this is a counting
+         * sort, with a comparison sort for the odd layer that is spread wide.
+         *
+         * @return number of reachable rooms
+         */
+        private int sortByCost(int[] cost) {
+            int min = INF;
+            int max = 0;
+            int count = 0;
+            for (int c : cost) {
+                if (c == INF) continue;
+                min = Math.min(min, c);
+                max = Math.max(max, c);
+                count++;
+            }
+            if (count == 0) return 0;
+            long range = (long) max - min + 1;
+            if (range > 2L * cost.length + 16) {
+                count = 0;
+                for (int r = 0; r < cost.length; r++) {
+                    if (cost[r] != INF) sources[count++] = ((long) cost[r] << 32) | r;
+                }
+                Arrays.sort(sources, 0, count);
+                return count;
+            }
+
+            if (counts.length < range + 1) counts = new int[(int) range + 1];
+            Arrays.fill(counts, 0, (int) range + 1, 0);
+            for (int c : cost) {
+                if (c != INF) counts[c - min + 1]++;
+            }
+            for (int b = 0; b < range; b++) counts[b + 1] += counts[b];
+            for (int r = 0; r < cost.length; r++) {
+                if (cost[r] != INF) sources[counts[cost[r] - min]++] = ((long) cost[r] << 32) | r;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Fixed-width codes packed into longs.
+     */
+    static class PackedCodes {
+        private final long[] words;
+        private final int bits;
+        private final long mask;
+
+        PackedCodes(long cells, int bits) {
+            long words = (cells * bits + 63) >>> 6;
+            if (words > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("backpointer block too large: " + cells + " cells");
+            }
+            this.words = new long[(int) words];
+            this.bits = bits;
+            this.mask = (1L << bits) - 1;
+        }
+
+        long capacity() {
+            return (long) words.length * 64 / bits;
+        }
+
+        void set(long cell, int code) {
+            long bit = cell * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] = words[word] & ~(mask << shift) | ((long) code & mask) << shift;
+            if (shift + bits > 64) {
+                int spill = 64 - shift;
+                words[word + 1] = words[word + 1] & ~(mask >>> spill) | ((long) code & mask) >>> spill;
+            }
+        }
+
+        int get(long cell) {
+            long bit = cell * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long value = words[word] >>> shift;
+            if (shift + bits > 64) value |= words[word + 1] << (64 - shift);
+            return (int) (value & mask);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.List;
+
+/**
+ * Incremental LZW encoder over a {@link CommandCodebook}.
+ * Tokens can be fed one at a time or in chunks. The current match is carried
+ * across calls, and a code is pushed to the sink as soon as the match cannot be
+ * extended. The encoder only holds the node of the current match, so its memory
+ * is bounded by the dictionary, not by the input.
+ */
+public class StreamingLzwEncoder {
+    private final CommandCodebook book;
+    private final CodeSink sink;
+    private IntDLBNode match; // longest match so far in the current sequence, or null
+
+    /**
+     * @param book codebook to match against and grow
+     * @param sink receiver for emitted codes
+     */
+    public StreamingLzwEncoder(CommandCodebook book, CodeSink sink) {
+        this.book = book;
+        this.sink = sink;
+    }
+
+    /**
+     * Feed the next command token of the current sequence.
+     *
+     * @param token the command token
+     * @throws IllegalArgumentException if the command has no code in the codebook;
+     *                                  nothing is emitted or learned then
+     */
+    public void accept(String token) {
+        if (match == null) {
+            match = book.primitive(token);
+            return;
+        }
+
+        // extend the current match if the longer pattern is already known
+        IntDLBNode next = book.extension(match, token);
+        if (next != null) {
+            match = next;
+            return;
+        }
+
+        // look the token up first, so an unknown one leaves the sink and codebook as they were
+        IntDLBNode primitive = book.primitive(token);
+        sink.code(match.code);
+        book.touch(match);
+        if (book.isFull() && book.policy() == DictionaryPolicy.RESET) {
+            sink.clear();
+            book.reset();
+        } else {
+            book.addPattern(match, token);
+        }
+        match = primitive;
+    }
+
+    /**
+     * Feed a chunk of tokens belonging to the current sequence.
+     *
+     * @param tokens command tokens in order
+     */
+    public void accept(List<String> tokens) {
+        for (String token : tokens) {
+            accept(token);
+        }
+    }
+
+    /**
+     * Close the current sequence: emit the pending match (if any) and signal
+     * the end of the sequence to the sink.
+     */
+    public void endSequence() {
+        if (match != null) {
+            sink.code(match.code);
+            book.touch(match);
+            match = null;
+        }
+        sink.endSequence();
+    }
+
+    /**
+     * @return true if tokens have been accepted whose code has not been emitted yet
+     */
+    public boolean hasPendingMatch() {
+        return match != null;
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps each distinct command token to a dense integer id (0, 1, 2, ...).
+ * Every id resolves back to a single shared String instance, so tries keyed on
+ * ids compare primitives instead of calling String.equals.
+ */
+public class TokenInterner {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] tokens = new String[16];
+    private int size;
+
+    /**
+     * Returns the id of the given token, assigning the next free id if the token
+     * has not been seen before.
+     *
+     * @param token the command token
+     * @return its dense id
+     */
+    public int intern(String token) {
+        Integer id = ids.get(token);
+        if (id != null) return id;
+
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+        }
+        tokens[size] = token;
+        ids.put(token, size);
+        return size++;
+    }
+
+    /**
+     * Looks up a token without assigning a new id.
+     *
+     * @param token the command token
+     * @return its id, or -1 if the token has never been interned
+     */
+    public int idOf(String token) {
+        Integer id = ids.get(token);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id a previously returned id
+     * @return the shared String instance for that id
+     */
+    public String token(int id) {
+        return tokens[id];
+    }
+
+    /**
+     * @return the number of distinct tokens interned so far
+     */
+    public int size() {
+        return size;
+    }
+}
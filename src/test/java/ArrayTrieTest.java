@@ -0,0 +1,87 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * JUnit 4 tests for the structure-of-arrays ArrayTrie.
+ */
+public class ArrayTrieTest {
+
+    @Test
+    public void testCompressMatchesCodebook() {
+        List<List<String>> sequences = CompressCommandPatternsTest.randomSequences(new Random(4), 4, 300, 50);
+
+        List<Integer> expected = CommandCodebook.wrap(CompressCommandPatternsTest.primitives()).compress(sequences);
+        ArrayTrie heap = ArrayTrie.fromDLB(CompressCommandPatternsTest.primitives(), false);
+        ArrayTrie direct = ArrayTrie.fromDLB(CompressCommandPatternsTest.primitives(), true);
+
+        assertEquals(expected, heap.compress(sequences));
+        assertEquals(expected, direct.compress(sequences));
+        assertTrue(direct.isDirect());
+    }
+
+    @Test
+    public void testConversionRoundTrip() {
+        DLBNode root = CompressCommandPatternsTest.primitives();
+        CommandCodebook.wrap(root).compress(CompressCommandPatternsTest.randomSequences(new Random(5), 4, 50, 50));
+
+        ArrayTrie trie = ArrayTrie.fromDLB(root, false);
+        DLBNode back = trie.toDLB();
+        ArrayTrie again = ArrayTrie.fromDLB(back, true);
+
+        assertEquals(trie.nodeCount(), again.nodeCount());
+        for (int i = 0; i <= trie.nodeCount(); i++) {
+            assertEquals(trie.token(i), again.token(i));
+            assertEquals(trie.code(i), again.code(i));
+            assertEquals(trie.child(i), again.child(i));
+            assertEquals(trie.sibling(i), again.sibling(i));
+        }
+        // top-level order is preserved
+        assertEquals(root.token, back.token);
+        assertEquals(root.sibling.token, back.sibling.token);
+    }
+
+    @Test
+    public void testLookup() {
+        DLBNode root = CompressCommandPatternsTest.insertSequence(null, Arrays.asList("MOVE"), 0);
+        root = CompressCommandPatternsTest.insertSequence(root, Arrays.asList("FORWARD"), 1);
+        ArrayTrie trie = ArrayTrie.fromDLB(root, false);
+
+        trie.compress(Collections.singletonList(Arrays.asList("MOVE","FORWARD","MOVE","FORWARD","MOVE")));
+
+        assertEquals(2, trie.lookup(Arrays.asList("MOVE","FORWARD")));
+        assertEquals(3, trie.lookup(Arrays.asList("FORWARD","MOVE")));
+        assertEquals(4, trie.lookup(Arrays.asList("MOVE","FORWARD","MOVE")));
+        assertEquals(-1, trie.lookup(Arrays.asList("FORWARD","FORWARD")));
+        assertEquals(-1, trie.lookup(Arrays.asList("JUMP")));
+        assertEquals(5, trie.nextCode());
+    }
+
+    @Test
+    public void testWideLevelsMatchCodebook() {
+        // well past the index threshold, so the top level and busy patterns get tables
+        String[] tokens = new String[40];
+        for (int i = 0; i < tokens.length; i++) tokens[i] = "CMD" + i;
+        List<List<String>> sequences = new ArrayList<>();
+        Random random = new Random(9);
+        for (int s = 0; s < 300; s++) {
+            List<String> sequence = new ArrayList<>();
+            for (int i = random.nextInt(30); i > 0; i--) sequence.add(tokens[random.nextInt(tokens.length)]);
+            sequences.add(sequence);
+        }
+
+        List<Integer> expected = CommandCodebook.wrap(CompressCommandPatternsTest.primitives(tokens))
+                .compress(sequences);
+        ArrayTrie trie = ArrayTrie.fromDLB(CompressCommandPatternsTest.primitives(tokens), false);
+        assertEquals(expected, trie.compress(sequences));
+
+        for (int i = 0; i < tokens.length; i++) {
+            assertEquals(i, trie.lookup(Collections.singletonList(tokens[i])));
+        }
+        // a child added after its parent's table was built is found through it
+        int id = trie.interner().intern("CMD40");
+        int node = trie.addChild(ArrayTrie.ROOT, id, trie.nextCode());
+        assertEquals(node, trie.findChild(ArrayTrie.ROOT, id));
+        assertEquals(ArrayTrie.NONE, trie.findChild(ArrayTrie.ROOT, trie.interner().intern("CMD41")));
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for BeamSignalDecoder.
+ */
+public class BeamSignalDecoderTest {
+
+    @Test
+    public void testWideBeamIsExact() {
+        Random random = new Random(24);
+        for (int round = 0; round < 200; round++) {
+            int rooms = 2 + random.nextInt(15);
+            Map<String, List<String>> graph = SignalRecoveryEngineTest.randomGraph(random, rooms,
+                    rooms * (1 + random.nextInt(4)));
+            List<String> corrupted = SignalRecoveryEngineTest.randomTrace(random, rooms, random.nextInt(30));
+            String exit = "r" + random.nextInt(rooms);
+
+            SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+            BeamSignalDecoder beam = new BeamSignalDecoder(engine, rooms + 1);
+            assertEquals(engine.cost(corrupted, exit), beam.cost(corrupted, exit));
+            assertEquals(engine.recover(corrupted, exit), beam.recover(corrupted, exit));
+        }
+    }
+
+    @Test
+    public void testNarrowBeamGivesValidWalk() {
+        Random random = new Random(25);
+        for (int round = 0; round < 200; round++) {
+            int rooms = 5 + random.nextInt(30);
+            Map<String, List<String>> graph = SignalRecoveryEngineTest.randomGraph(random, rooms, rooms * 3);
+            List<String> corrupted = SignalRecoveryEngineTest.randomTrace(random, rooms, random.nextInt(40));
+            String exit = "r" + random.nextInt(rooms);
+
+            SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+            BeamSignalDecoder beam = new BeamSignalDecoder(engine, 1 + random.nextInt(4), random.nextInt(3));
+            int exact = engine.cost(corrupted, exit);
+            int approximate = beam.cost(corrupted, exit);
+            assertTrue(approximate >= exact);
+
+            List<String> path = beam.recover(corrupted, exit);
+            if (approximate == SignalRecoveryEngine.UNREACHABLE) {
+                assertEquals(Collections.singletonList(exit), path);
+                continue;
+            }
+            assertEquals(exit, path.get(path.size() - 1));
+            String previous = "START";
+            for (String room : path) {
+                assertTrue(previous + " -> " + room, previous.equals(room) || graph.get(previous).contains(room));
+                previous = room;
+            }
+        }
+    }
+
+    @Test
+    public void testBeamOfOneFollowsCheapestRoom() {
+        // START -> A -> B and START -> A -> C -> B: the log saw C, so the beam keeps C over B
+        Map<String, List<String>> graph = new LinkedHashMap<>();
+        graph.put("START", Collections.singletonList("A"));
+        graph.put("A", Arrays.asList("B", "C"));
+        graph.put("C", Collections.singletonList("B"));
+        graph.put("B", Collections.emptyList());
+
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        BeamSignalDecoder beam = new BeamSignalDecoder(engine, 1);
+        assertEquals(Arrays.asList("A", "C", "B"), beam.recover(Arrays.asList("A", "C", "B"), "B"));
+        assertEquals(0, beam.cost(Arrays.asList("A", "C", "B"), "B"));
+        // the exit is settled after the last token even though it never made the beam before
+        assertEquals(1, beam.cost(Arrays.asList("A", "C"), "B"));
+        assertEquals(engine.recover(Arrays.asList("A", "C"), "B"), beam.recover(Arrays.asList("A", "C"), "B"));
+        assertEquals(Collections.emptyList(), beam.recover(Arrays.asList("A"), "nowhere"));
+    }
+
+    @Test
+    public void testReportCountsDifferences() {
+        Random random = new Random(26);
+        int rooms = 40;
+        Map<String, List<String>> graph = SignalRecoveryEngineTest.randomGraph(random, rooms, rooms * 3);
+        List<List<String>> traces = new ArrayList<>();
+        List<String> exits = new ArrayList<>();
+        for (int t = 0; t < 30; t++) {
+            traces.add(SignalRecoveryEngineTest.randomTrace(random, rooms, 20));
+            exits.add("r" + random.nextInt(rooms));
+        }
+
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        BeamSignalDecoder.Report exact = new BeamSignalDecoder(engine, rooms + 1).compare(traces, exits);
+        assertEquals(30, exact.traces);
+        assertEquals(0, exact.differentPaths);
+        assertEquals(0, exact.costlier + exact.missedExits);
+
+        BeamSignalDecoder.Report narrow = new BeamSignalDecoder(engine, 1).compare(traces, exits);
+        assertTrue(narrow.differentPaths >= narrow.costlier);
+        assertTrue(narrow.maxExtraCost <= narrow.extraCost);
+        assertEquals((double) narrow.differentPaths / 30, narrow.differenceRate(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBeamWidthMustBePositive() {
+        new BeamSignalDecoder(new SignalRecoveryEngine(SignalRecoveryEngineTest.randomGraph(new Random(1), 3, 3)), 0);
+    }
+}
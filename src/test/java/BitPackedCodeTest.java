@@ -0,0 +1,70 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * JUnit 4 tests for BitPackedCodeWriter / BitPackedCodeReader round trips.
+ */
+public class BitPackedCodeTest {
+
+    private static byte[] pack(CommandCodebook book, List<List<String>> sequences) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitPackedCodeWriter writer = new BitPackedCodeWriter(bytes, book);
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, writer);
+        for (List<String> sequence : sequences) {
+            encoder.accept(sequence);
+            encoder.endSequence();
+        }
+        writer.finish();
+        assertEquals(bytes.size(), writer.bytesWritten());
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<List<String>> sequences = CompressCommandPatternsTest.randomSequences(new Random(11), 4, 200, 80);
+        byte[] packed = pack(CommandCodebook.wrap(CompressCommandPatternsTest.primitives()), sequences);
+
+        BitPackedCodeReader reader = new BitPackedCodeReader(
+            new ByteArrayInputStream(packed), new LzwDecoder(CompressCommandPatternsTest.primitives()));
+        assertEquals(sequences, reader.readAll());
+    }
+
+    @Test
+    public void testRoundTripFromByteBuffer() {
+        List<List<String>> sequences = Arrays.asList(
+            Collections.<String>emptyList(),
+            Arrays.asList("MOVE","MOVE","MOVE","MOVE"),
+            Collections.<String>emptyList(),
+            Arrays.asList("STOP"));
+        byte[] packed = pack(CommandCodebook.wrap(CompressCommandPatternsTest.primitives()), sequences);
+
+        BitPackedCodeReader reader = new BitPackedCodeReader(ByteBuffer.wrap(packed),
+            new LzwDecoder(CompressCommandPatternsTest.primitives()));
+        assertEquals(sequences, reader.readAll());
+        assertEquals(BitPackedCodeReader.STREAM_END, reader.next());
+    }
+
+    @Test
+    public void testSmallerThanFixedWidthInts() {
+        List<List<String>> sequences = CompressCommandPatternsTest.randomSequences(new Random(3), 4, 500, 80);
+        CommandCodebook book = CommandCodebook.wrap(CompressCommandPatternsTest.primitives());
+        int codes = CommandCodebook.wrap(CompressCommandPatternsTest.primitives()).compress(sequences).size();
+        byte[] packed = pack(book, sequences);
+
+        // codes stay below 2^16 here, so packing must beat even 2-byte codes
+        assertTrue("packed " + packed.length + " bytes for " + codes + " codes",
+            packed.length < codes * 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedSeedRejected() {
+        byte[] packed = pack(CommandCodebook.wrap(CompressCommandPatternsTest.primitives()),
+            CompressCommandPatternsTest.randomSequences(new Random(5), 4, 3, 80));
+        DLBNode other = CompressCommandPatternsTest.insertSequence(null, Arrays.asList("MOVE"), 0);
+        new BitPackedCodeReader(new ByteArrayInputStream(packed), new LzwDecoder(other));
+    }
+}
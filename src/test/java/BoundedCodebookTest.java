@@ -0,0 +1,104 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+/**
+ * JUnit 4 tests for size-limited CommandCodebooks and their decoders.
+ */
+public class BoundedCodebookTest {
+
+    private static int countNodes(DLBNode node) {
+        int count = 0;
+        Deque<DLBNode> stack = new ArrayDeque<>();
+        if (node != null) stack.push(node);
+        while (!stack.isEmpty()) {
+            DLBNode n = stack.pop();
+            count++;
+            if (n.sibling != null) stack.push(n.sibling);
+            if (n.child != null) stack.push(n.child);
+        }
+        return count;
+    }
+
+    private static void assertRoundTrip(DictionaryPolicy policy, int capacity, int alphabet) {
+        List<List<String>> sequences =
+            CompressCommandPatternsTest.randomSequences(new Random(policy.ordinal()), alphabet, 300, 40);
+        DLBNode root = CompressCommandPatternsTest.primitives();
+        CommandCodebook book = CommandCodebook.wrap(root, policy, capacity);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BitPackedCodeWriter writer = new BitPackedCodeWriter(bytes, book);
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, writer);
+        for (List<String> sequence : sequences) {
+            encoder.accept(sequence);
+            encoder.endSequence();
+            assertTrue("nextCode above capacity", book.nextCode() <= capacity);
+            assertTrue("node count above capacity", book.nodeCount() <= capacity);
+        }
+        writer.finish();
+
+        // the caller's trie must track the codebook exactly
+        assertEquals(book.nodeCount(), countNodes(root));
+
+        BitPackedCodeReader reader = new BitPackedCodeReader(
+            new ByteArrayInputStream(bytes.toByteArray()), new LzwDecoder(CompressCommandPatternsTest.primitives()));
+        assertEquals(policy + " round trip", sequences, reader.readAll());
+    }
+
+    @Test
+    public void testFreezeRoundTrip() {
+        assertRoundTrip(DictionaryPolicy.FREEZE, 24, 3);
+    }
+
+    @Test
+    public void testResetRoundTrip() {
+        assertRoundTrip(DictionaryPolicy.RESET, 24, 3);
+    }
+
+    @Test
+    public void testLruRoundTrip() {
+        assertRoundTrip(DictionaryPolicy.LRU, 24, 3);
+    }
+
+    @Test
+    public void testWideLruRoundTrip() {
+        // wide enough that nodes hash their children and evictions hit the index
+        assertRoundTrip(DictionaryPolicy.LRU, 400, CompressCommandPatternsTest.COMMANDS.length);
+    }
+
+    @Test
+    public void testTightLruRoundTrip() {
+        assertRoundTrip(DictionaryPolicy.LRU, CompressCommandPatternsTest.COMMANDS.length + 1, 3);
+    }
+
+    @Test
+    public void testFreezeStopsGrowing() {
+        CommandCodebook book =
+            CommandCodebook.wrap(CompressCommandPatternsTest.primitives(), DictionaryPolicy.FREEZE, 14);
+        List<Integer> codes = book.compress(Collections.singletonList(
+            Arrays.asList("MOVE","FORWARD","TURN","MOVE","FORWARD","TURN")));
+
+        // only MOVE FORWARD (12) and FORWARD TURN (13) fit
+        assertEquals(Arrays.asList(0, 1, 2, 12, 2), codes);
+        assertEquals(14, book.nextCode());
+    }
+
+    @Test
+    public void testResetDropsLearnedPatterns() {
+        DLBNode root = CompressCommandPatternsTest.primitives();
+        CommandCodebook book = CommandCodebook.wrap(root, DictionaryPolicy.RESET, 13);
+        book.compress(Collections.singletonList(Arrays.asList("MOVE","FORWARD","TURN")));
+
+        // MOVE FORWARD took the last code; FORWARD TURN triggered the reset
+        assertEquals(12, book.nextCode());
+        assertEquals(CompressCommandPatternsTest.COMMANDS.length, countNodes(root));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustExceedPreloadedCodes() {
+        CommandCodebook.wrap(CompressCommandPatternsTest.primitives(), DictionaryPolicy.LRU,
+            CompressCommandPatternsTest.COMMANDS.length);
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.*;
+
+/**
+ * Rough micro-benchmark for child lookup on wide trie levels.
+ * Compares a plain DLBNode sibling scan against IntDLBNode, which switches to a
+ * hashed index once the fan-out passes IntDLBNode.INDEX_THRESHOLD.
+ *
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes ChildLookupBenchmark
+ */
+public class ChildLookupBenchmark {
+
+    private static final int LOOKUPS = 2_000_000;
+
+    public static void main(String[] args) {
+        System.out.printf("%8s %18s %18s%n", "fan-out", "sibling ns/lookup", "adaptive ns/lookup");
+        for (int fanOut = 4; fanOut <= 4096; fanOut *= 4) {
+            run(fanOut, false); // warm-up
+            double[] ns = run(fanOut, true);
+            System.out.printf("%8d %18.1f %18.1f%n", fanOut, ns[0], ns[1]);
+        }
+    }
+
+    private static double[] run(int fanOut, boolean report) {
+        TokenInterner interner = new TokenInterner();
+        DLBNode stringRoot = null;
+        String[] tokens = new String[fanOut];
+        for (int i = 0; i < fanOut; i++) {
+            tokens[i] = "CMD" + i;
+            DLBNode node = new DLBNode(tokens[i]);
+            node.code = i;
+            node.sibling = stringRoot;
+            stringRoot = node;
+        }
+        IntDLBNode top = IntDLBNode.mirror(stringRoot, interner);
+
+        // the same pseudo-random probe order for both structures
+        Random random = new Random(42);
+        int[] probes = new int[LOOKUPS];
+        String[] stringProbes = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int t = random.nextInt(fanOut);
+            stringProbes[i] = new String(tokens[t]); // force a real equals() comparison
+            probes[i] = interner.idOf(tokens[t]);
+        }
+
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            DLBNode curr = stringRoot;
+            while (!curr.token.equals(stringProbes[i])) curr = curr.sibling;
+            checksum += curr.code;
+        }
+        long sibling = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            checksum -= top.findChild(probes[i]).code;
+        }
+        long adaptive = System.nanoTime() - start;
+
+        if (checksum != 0) throw new IllegalStateException("lookups disagree");
+        return new double[] { (double) sibling / LOOKUPS, (double) adaptive / LOOKUPS };
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Rough benchmark for closest-exit searches on a random grid-like facility map.
+ * Compares the original String-keyed PriorityQueue search against ExitDistances
+ * with an IndexedMinHeap, with a BucketQueue and with parallel delta-stepping
+ * on the common pool, plus the three-nearest-exits search and a search on the
+ * graph loaded back from a mapped RoomGraphFile. It then times single-room A*
+ * queries with landmark bounds and, after closing some doors, with the
+ * distances from before as bounds.
+ *
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes ClosestExitBenchmark [rooms]
+ */
+public class ClosestExitBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Map<String, List<Edge>> graph = gridGraph(rooms, 10, new Random(7));
+        List<String> exits = Arrays.asList("r0", "r" + (rooms / 2), "r" + (rooms - 1));
+        CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+
+        System.out.printf("%d rooms, %d edges, max weight %d%n", compiled.roomCount(), compiled.edgeCount(),
+                compiled.maxWeight());
+        Path file = Files.createTempFile("rooms", ".bin");
+        file.toFile().deleteOnExit();
+        RoomGraphFile.write(compiled, file);
+        long loadStart = System.nanoTime();
+        CompiledRoomGraph mapped = RoomGraphFile.load(file, false);
+        System.out.printf("mapped %d bytes in %.2f ms%n", Files.size(file), (System.nanoTime() - loadStart) / 1e6);
+
+        System.out.printf("%-16s %10s%n", "queue", "ms/search");
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            boolean report = round == 1;
+            time("PriorityQueue", report, () -> boxedSearch(graph, exits).size());
+            time("IndexedMinHeap", report,
+                    () -> ExitDistances.compute(compiled, exits, new IndexedMinHeap(compiled.roomCount())).distance(0));
+            time("BucketQueue", report, () -> ExitDistances.compute(compiled, exits,
+                    new BucketQueue(compiled.roomCount(), compiled.maxWeight())).distance(0));
+            time("DeltaStepping", report, () -> new DeltaSteppingSearch(ForkJoinPool.commonPool())
+                    .compute(compiled, exits).distance(0));
+            time("Mapped file", report, () -> ExitDistances.compute(mapped, exits).distance(0));
+            time("KNearest k=3", report, () -> KNearestExits.compute(compiled, exits, 3).distance(0, 0));
+        }
+
+        ExitRouter router = new ExitRouter(compiled, exits,
+                ExitHeuristic.landmarks(ExitDistances.compute(compiled, exits), 8));
+        Random random = new Random(1);
+        int queries = 2000;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) checksum += router.query("r" + random.nextInt(rooms)).distance;
+        System.out.printf("%-16s %10.1f us/query   (checksum %d)%n", "ExitRouter+ALT",
+                (System.nanoTime() - start) / 1e3 / queries, checksum);
+
+        // close one door in fifty, then route with the distances from before
+        ExitDistances before = ExitDistances.compute(compiled, exits);
+        for (List<Edge> edges : graph.values()) {
+            if (random.nextInt(50) == 0 && !edges.isEmpty()) edges.remove(0);
+        }
+        CompiledRoomGraph after = CompiledRoomGraph.compile(graph);
+        router = new ExitRouter(after, exits, ExitHeuristic.previous(before, after));
+        checksum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) checksum += router.query("r" + random.nextInt(rooms)).distance;
+        System.out.printf("%-16s %10.1f us/query   (checksum %d)%n", "ExitRouter+prev",
+                (System.nanoTime() - start) / 1e3 / queries, checksum);
+    }
+
+    private interface Search {
+        int run();
+    }
+
+    private static void time(String name, boolean report, Search search) {
+        int runs = 5;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) checksum += search.run();
+        double ms = (System.nanoTime() - start) / 1e6 / runs;
+        if (report) System.out.printf("%-16s %10.1f   (checksum %d)%n", name, ms, checksum);
+    }
+
+    /**
+     * Rooms on a square grid with bidirectional edges of weight 1..maxWeight.
+     */
+    static Map<String, List<Edge>> gridGraph(int rooms, int maxWeight, Random random) {
+        int side = (int) Math.ceil(Math.sqrt(rooms));
+        Map<String, List<Edge>> graph = new HashMap<>();
+        for (int i = 0; i < rooms; i++) graph.put("r" + i, new ArrayList<>());
+        for (int i = 0; i < rooms; i++) {
+            int right = i + 1;
+            int down = i + side;
+            if (right < rooms && right % side != 0) connect(graph, i, right, 1 + random.nextInt(maxWeight));
+            if (down < rooms) connect(graph, i, down, 1 + random.nextInt(maxWeight));
+        }
+        return graph;
+    }
+
+    private static void connect(Map<String, List<Edge>> graph, int a, int b, int weight) {
+        graph.get("r" + a).add(new Edge("r" + b, weight));
+        graph.get("r" + b).add(new Edge("r" + a, weight));
+    }
+
+    /**
+     * The search as it was before the graph was compiled: boxed distances,
+     * duplicate queue entries and a visited set.
+     */
+    private static Map<String, Integer> boxedSearch(Map<String, List<Edge>> roomGraph, List<String> exitRooms) {
+        Map<String, Integer> distances = new HashMap<>();
+        PriorityQueue<String> pq = new PriorityQueue<>(Comparator.comparingInt(distances::get));
+        Set<String> visited = new HashSet<>();
+        for (String room : roomGraph.keySet()) distances.put(room, Integer.MAX_VALUE);
+        for (String exit : exitRooms) {
+            distances.put(exit, 0);
+            pq.add(exit);
+        }
+        while (!pq.isEmpty()) {
+            String current = pq.poll();
+            if (!visited.add(current)) continue;
+            int currDist = distances.get(current);
+            for (Edge edge : roomGraph.get(current)) {
+                int newDist = currDist + edge.weight;
+                if (newDist < distances.get(edge.to)) {
+                    distances.put(edge.to, newDist);
+                    pq.add(edge.to);
+                }
+            }
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * JUnit 4 tests for CodebookSnapshot save / memory-mapped load.
+ */
+public class CodebookSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWarmStartContinuesLikeOriginal() throws IOException {
+        ArrayTrie trie = ArrayTrie.fromDLB(CompressCommandPatternsTest.primitives(), false);
+        trie.compress(CompressCommandPatternsTest.randomSequences(new Random(6), 4, 200, 50));
+
+        Path file = folder.newFile("codebook.bin").toPath();
+        CodebookSnapshot.write(trie, file);
+        ArrayTrie loaded = CodebookSnapshot.load(file);
+
+        assertTrue("mapped arrays live off-heap", loaded.isDirect());
+        assertEquals(trie.nodeCount(), loaded.nodeCount());
+        assertEquals(trie.nextCode(), loaded.nextCode());
+        assertEquals(trie.lookup(Arrays.asList("MOVE","FORWARD")), loaded.lookup(Arrays.asList("MOVE","FORWARD")));
+
+        // both keep learning identically; the loaded one copies its arrays on the first change
+        List<List<String>> more = CompressCommandPatternsTest.randomSequences(new Random(7), 4, 100, 50);
+        assertEquals(trie.compress(more), loaded.compress(more));
+        assertEquals(trie.nodeCount(), loaded.nodeCount());
+    }
+
+    @Test
+    public void testCorruptFileRejected() throws IOException {
+        ArrayTrie trie = ArrayTrie.fromDLB(CompressCommandPatternsTest.primitives(), false);
+        trie.compress(CompressCommandPatternsTest.randomSequences(new Random(8), 4, 20, 50));
+        Path file = folder.newFile("codebook.bin").toPath();
+        CodebookSnapshot.write(trie, file);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 3);
+            raf.write(0x7F);
+        }
+
+        try {
+            CodebookSnapshot.load(file);
+            fail("corrupt snapshot was accepted");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void testMalformedFileRejectedWithoutChecksum() throws IOException {
+        ArrayTrie trie = ArrayTrie.fromDLB(CompressCommandPatternsTest.primitives(), false);
+        Path file = folder.newFile("codebook.bin").toPath();
+        // truncated, then the first token's length, then the token count
+        long[][] damage = { { -1, 0 }, { 28, 0x7FFFFFFF }, { 28, -5 }, { 16, 1 << 20 } };
+        for (long[] d : damage) {
+            CodebookSnapshot.write(trie, file);
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                if (d[0] == -1) {
+                    raf.setLength(raf.length() - 4);
+                } else {
+                    raf.seek(d[0]);
+                    raf.writeInt((int) d[1]);
+                }
+            }
+            try {
+                CodebookSnapshot.load(file, false);
+                fail("malformed snapshot was accepted: " + Arrays.toString(d));
+            } catch (IOException expected) {
+                // rejected before any buffer read could fail
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedNodesRejected() throws IOException {
+        // root, AA (node 1) and BB (node 2) at the top level: a 12-byte token table, arrays from byte 40
+        ArrayTrie trie = new ArrayTrie(4, false);
+        trie.addChild(ArrayTrie.ROOT, trie.interner().intern("AA"), 0);
+        trie.addChild(ArrayTrie.ROOT, trie.interner().intern("BB"), 1);
+        Path file = folder.newFile("codebook.bin").toPath();
+        CodebookSnapshot.write(trie, file);
+        assertEquals(1, CodebookSnapshot.load(file, false).lookup(Arrays.asList("BB")));
+
+        // token id, code, child, sibling forming a cycle BB -> AA -> BB, and BB's length and bytes as AA
+        int[][] damage = { { 44, 5 }, { 56, 7 }, { 68, 9 }, { 80, 2 }, { 36, 0x00024141 } };
+        String[] expected = { "token", "code", "links", "linked twice", "repeats" };
+        for (int i = 0; i < damage.length; i++) {
+            CodebookSnapshot.write(trie, file);
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(damage[i][0]);
+                raf.writeInt(damage[i][1]);
+            }
+            try {
+                CodebookSnapshot.load(file, false);
+                fail("malformed snapshot was accepted: " + expected[i]);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(expected[i]));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotASnapshot() throws IOException {
+        Path file = folder.newFile("other.bin").toPath();
+        java.nio.file.Files.write(file, "hello, world, not a trie".getBytes());
+        CodebookSnapshot.load(file);
+    }
+}
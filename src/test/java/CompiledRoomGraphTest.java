@@ -0,0 +1,131 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for CompiledRoomGraph and ExitDistances.
+ */
+public class CompiledRoomGraphTest {
+
+    @Test
+    public void testCsrLayout() {
+        Map<String, List<Edge>> graph = new LinkedHashMap<>();
+        graph.put("A", Arrays.asList(new Edge("B", 3), new Edge("C", 7)));
+        graph.put("B", Collections.emptyList());
+        graph.put("C", Arrays.asList(new Edge("A", 1)));
+
+        CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+        assertEquals(3, compiled.roomCount());
+        assertEquals(3, compiled.edgeCount());
+        assertEquals(7, compiled.maxWeight());
+
+        int a = compiled.id("A");
+        assertEquals(2, compiled.edgeEnd(a) - compiled.edgeStart(a));
+        assertEquals("B", compiled.name(compiled.edgeTarget(compiled.edgeStart(a))));
+        assertEquals(7, compiled.edgeWeight(compiled.edgeStart(a) + 1));
+        assertEquals(0, compiled.edgeEnd(compiled.id("B")) - compiled.edgeStart(compiled.id("B")));
+        assertEquals(-1, compiled.id("Z"));
+    }
+
+    @Test
+    public void testTargetOnlyRoomIsTraversedButNotReported() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("EXIT", Arrays.asList(new Edge("HALL", 2)));
+        graph.put("A", Collections.emptyList());
+        // HALL is never a key, yet rooms beyond it are still reachable through it
+        graph.put("B", Collections.emptyList());
+
+        CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+        assertEquals(3, compiled.listedRooms());
+        assertEquals(4, compiled.roomCount());
+
+        Map<String, ExitInfo> result = new A2().computeClosestExits(graph, Collections.singletonList("EXIT"));
+        assertEquals(3, result.size());
+        assertFalse(result.containsKey("HALL"));
+        assertEquals(2, ExitDistances.compute(compiled, Collections.singletonList("EXIT"))
+                .distance(compiled.id("HALL")));
+    }
+
+    @Test
+    public void testTieGoesToFirstListedExit() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("X", Arrays.asList(new Edge("M", 4)));
+        graph.put("Y", Arrays.asList(new Edge("M", 4)));
+        graph.put("M", Collections.emptyList());
+
+        A2 a2 = new A2();
+        assertEquals("X", a2.computeClosestExits(graph, Arrays.asList("X", "Y")).get("M").exitRoom);
+        assertEquals("Y", a2.computeClosestExits(graph, Arrays.asList("Y", "X")).get("M").exitRoom);
+    }
+
+    @Test
+    public void testHugeWeightsDoNotOverflow() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("E", Arrays.asList(new Edge("A", Integer.MAX_VALUE - 1)));
+        graph.put("A", Arrays.asList(new Edge("B", Integer.MAX_VALUE - 1)));
+        graph.put("B", Collections.emptyList());
+
+        Map<String, ExitInfo> result = new A2().computeClosestExits(graph, Collections.singletonList("E"));
+        assertEquals(Integer.MAX_VALUE - 1, result.get("A").distance);
+        assertNull(result.get("B").exitRoom);
+        assertEquals(Integer.MAX_VALUE, result.get("B").distance);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeightRejected() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("A", Arrays.asList(new Edge("B", -1)));
+        CompiledRoomGraph.compile(graph);
+    }
+
+    @Test
+    public void testMatchesReferenceOnRandomGraphs() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            Map<String, List<Edge>> graph = randomGraph(random, 60, 180, 20);
+            List<String> exits = Arrays.asList("r" + random.nextInt(60), "r" + random.nextInt(60));
+            Map<String, ExitInfo> result = new A2().computeClosestExits(graph, exits);
+            Map<String, Integer> expected = referenceDistances(graph, exits);
+            for (String room : graph.keySet()) {
+                assertEquals(room, (int) expected.get(room), result.get(room).distance);
+            }
+        }
+    }
+
+    /**
+     * Random graph over rooms r0..r(n-1), all of them keys.
+     */
+    static Map<String, List<Edge>> randomGraph(Random random, int rooms, int edges, int maxWeight) {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        for (int i = 0; i < rooms; i++) graph.put("r" + i, new ArrayList<>());
+        for (int i = 0; i < edges; i++) {
+            graph.get("r" + random.nextInt(rooms)).add(new Edge("r" + random.nextInt(rooms), random.nextInt(maxWeight + 1)));
+        }
+        return graph;
+    }
+
+    /**
+     * Bellman-Ford style fixpoint, slow but obviously correct.
+     */
+    static Map<String, Integer> referenceDistances(Map<String, List<Edge>> graph, List<String> exits) {
+        Map<String, Integer> dist = new HashMap<>();
+        for (String room : graph.keySet()) dist.put(room, Integer.MAX_VALUE);
+        for (String exit : exits) dist.put(exit, 0);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, List<Edge>> entry : graph.entrySet()) {
+                int d = dist.get(entry.getKey());
+                if (d == Integer.MAX_VALUE) continue;
+                for (Edge edge : entry.getValue()) {
+                    if (d + edge.weight < dist.get(edge.to)) {
+                        dist.put(edge.to, d + edge.weight);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+}
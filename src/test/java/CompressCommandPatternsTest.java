@@ -8,6 +8,11 @@ import java.util.*;
  */
 public class CompressCommandPatternsTest {
 
+    /** Command names the compression tests draw from. */
+    static final String[] COMMANDS = {
+        "MOVE", "FORWARD", "TURN", "LEFT", "RIGHT", "STOP", "BACK", "UP", "DOWN", "GRAB", "DROP", "WAIT"
+    };
+
     /**
      * Find a node whose token matches `token` in the sibling chain starting at `head`.
      *
@@ -67,6 +72,39 @@ public class CompressCommandPatternsTest {
         return head;
     }
 
+    /**
+     * @return the top-level trie of every one of {@link #COMMANDS}
+     */
+    static DLBNode primitives() {
+        return primitives(COMMANDS);
+    }
+
+    /**
+     * Top-level trie of single-token patterns, token i getting code i.
+     */
+    static DLBNode primitives(String... tokens) {
+        DLBNode root = null;
+        for (int i = 0; i < tokens.length; i++) {
+            root = insertSequence(root, Arrays.asList(tokens[i]), i);
+        }
+        return root;
+    }
+
+    /**
+     * Random sequences of fewer than maxLength tokens, drawn uniformly from
+     * the first {@code alphabet} of {@link #COMMANDS}.
+     */
+    static List<List<String>> randomSequences(Random random, int alphabet, int count, int maxLength) {
+        List<List<String>> sequences = new ArrayList<>();
+        for (int s = 0; s < count; s++) {
+            List<String> sequence = new ArrayList<>();
+            int len = random.nextInt(maxLength);
+            for (int i = 0; i < len; i++) sequence.add(COMMANDS[random.nextInt(alphabet)]);
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
     @Test
     public void testCompressionBasic() {
         A2Interface a2 = new A2();
@@ -128,4 +166,96 @@ public class CompressCommandPatternsTest {
         List<Integer> expected = Arrays.asList(0, 1, 2);
         assertEquals("Unknown command introduction failed", expected, result);
     }
+
+    @Test
+    public void testTrieUpdatedInPlace() {
+        A2Interface a2 = new A2();
+        DLBNode root = null;
+
+        root = insertSequence(root, Arrays.asList("MOVE"),    0);
+        root = insertSequence(root, Arrays.asList("FORWARD"), 1);
+
+        List<String> seq = Arrays.asList("MOVE","FORWARD","MOVE","FORWARD","MOVE");
+        List<Integer> result = a2.compressCommandPatterns(root, Collections.singletonList(seq));
+
+        // MOVE→0, FORWARD→1, MOVE FORWARD→2, MOVE→0; adds MF=2, FM=3, MFM=4
+        assertEquals(Arrays.asList(0, 1, 2, 0), result);
+        DLBNode move = findChild(root, "MOVE");
+        DLBNode moveForward = findChild(move.child, "FORWARD");
+        assertNotNull("MOVE FORWARD should be inserted in place", moveForward);
+        assertEquals(2, moveForward.code);
+        assertEquals(3, findChild(findChild(root, "FORWARD").child, "MOVE").code);
+        assertEquals(4, findChild(moveForward.child, "MOVE").code);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownPrimitiveRejected() {
+        A2Interface a2 = new A2();
+        DLBNode root = insertSequence(null, Arrays.asList("MOVE"), 0);
+
+        a2.compressCommandPatterns(root, Collections.singletonList(Arrays.asList("MOVE", "JUMP")));
+    }
+
+    @Test
+    public void testWideTopLevel() {
+        A2Interface a2 = new A2();
+        DLBNode root = null;
+
+        // enough primitives that the top level switches to a hashed child index
+        for (int i = 0; i < 50; i++) {
+            root = insertSequence(root, Arrays.asList("CMD" + i), i);
+        }
+
+        List<String> seq = Arrays.asList("CMD7","CMD42","CMD7","CMD42","CMD0");
+        List<Integer> result = a2.compressCommandPatterns(root, Collections.singletonList(seq));
+
+        // CMD7 CMD42 gets code 50 and is reused on the second occurrence
+        assertEquals(Arrays.asList(7, 42, 50, 0), result);
+    }
+
+    @Test
+    public void testDictionaryCarriesAcrossCalls() {
+        A2Interface a2 = new A2();
+        DLBNode root = null;
+
+        root = insertSequence(root, Arrays.asList("MOVE"),    0);
+        root = insertSequence(root, Arrays.asList("FORWARD"), 1);
+
+        List<List<String>> batch = Collections.singletonList(Arrays.asList("MOVE","FORWARD"));
+        assertEquals(Arrays.asList(0, 1), a2.compressCommandPatterns(root, batch));
+        // the second batch reuses MOVE FORWARD (code 2) learned by the first
+        assertEquals(Arrays.asList(2), a2.compressCommandPatterns(root, batch));
+        // a fresh A2 sees the same trie and picks up where it left off
+        assertEquals(Arrays.asList(2, 2),
+            new A2().compressCommandPatterns(root,
+                Collections.singletonList(Arrays.asList("MOVE","FORWARD","MOVE","FORWARD"))));
+    }
+
+    @Test
+    public void testCallerInsertsBetweenCalls() {
+        A2 a2 = new A2();
+        DLBNode root = insertSequence(null, Arrays.asList("A"), 0);
+        root = insertSequence(root, Arrays.asList("B"), 1);
+        assertEquals(Arrays.asList(0, 1), a2.compressCommandPatterns(root,
+            Collections.singletonList(Arrays.asList("A", "B"))));
+
+        // a pattern added outside the compressor is used by the next call
+        root = a2.insertChild(root, Arrays.asList("B", "A"), 10);
+        assertEquals(Arrays.asList(10, 10), a2.compressCommandPatterns(root,
+            Collections.singletonList(Arrays.asList("B", "A", "B", "A"))));
+        assertNull(findChild(findChild(root, "B").child, "A").sibling); // no second A under B
+    }
+
+    @Test
+    public void testDeepPreloadedPattern() {
+        A2Interface a2 = new A2();
+        DLBNode root = insertSequence(null, Arrays.asList("MOVE"), 0);
+
+        // a very long preloaded pattern must not overflow the stack when scanned
+        root = insertSequence(root, Collections.nCopies(200_000, "MOVE"), 1);
+
+        List<Integer> result = a2.compressCommandPatterns(root,
+            Collections.singletonList(Arrays.asList("MOVE")));
+        assertEquals(Arrays.asList(0), result);
+    }
 }
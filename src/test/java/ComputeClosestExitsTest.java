@@ -2,6 +2,7 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * JUnit 4 tests for computeClosestExits in A2Interface.
@@ -113,4 +114,39 @@ public class ComputeClosestExitsTest {
         assertEquals("C", result.get("D").exitRoom);
         assertEquals(1, result.get("D").distance);
     }
+
+    @Test
+    public void testExitReachingAnotherExitForFree() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        // the edge from exit A reaches exit B for free, and C is reached only through B
+        graph.put("A", Arrays.asList(new Edge("B", 0)));
+        graph.put("B", Arrays.asList(new Edge("C", 2)));
+        graph.put("C", Collections.emptyList());
+        List<String> exits = Arrays.asList("A", "B");
+        CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+
+        List<Map<String, ExitInfo>> results = new ArrayList<>();
+        results.add(new A2().computeClosestExits(graph, exits));
+        results.add(ExitDistances.compute(compiled, exits).toMap());
+        results.add(new LazyExitSearch(compiled, exits).query(graph.keySet()));
+        results.add(new DeltaSteppingSearch(ForkJoinPool.commonPool()).computeClosestExits(graph, exits));
+        results.add(new DynamicExitIndex(graph, exits).toMap());
+        ExitRouter router = new ExitRouter(compiled, exits, ExitHeuristic.none());
+        Map<String, ExitInfo> routed = new HashMap<>();
+        for (String room : graph.keySet()) routed.put(room, router.query(room));
+        results.add(routed);
+        for (Map<String, ExitInfo> result : results) {
+            assertEquals("B", result.get("B").exitRoom);
+            assertEquals(0, result.get("B").distance);
+            // routes end at the first exit they reach
+            assertEquals("B", result.get("C").exitRoom);
+            assertEquals(2, result.get("C").distance);
+        }
+        assertEquals(-1, ExitDistances.compute(compiled, exits).nextHop(compiled.id("B")));
+        assertEquals(Arrays.asList("C", "B"), router.route("C"));
+
+        ExitInfo first = KNearestExits.compute(compiled, exits, 2).infos("B").get(0);
+        assertEquals("B", first.exitRoom);
+        assertEquals(0, first.distance);
+    }
 }
@@ -0,0 +1,76 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * JUnit 4 tests for DeltaSteppingSearch.
+ */
+public class DeltaSteppingSearchTest {
+
+    @Test
+    public void testSameMapAsSequentialSearch() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("A", Arrays.asList(new Edge("B", 5), new Edge("D", 2)));
+        graph.put("B", Arrays.asList(new Edge("A", 5), new Edge("C", 5)));
+        graph.put("C", Arrays.asList(new Edge("B", 5), new Edge("D", 2)));
+        graph.put("D", Arrays.asList(new Edge("A", 2), new Edge("C", 2)));
+        graph.put("E", Collections.emptyList());
+        List<String> exits = Arrays.asList("B", "C");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<String, ExitInfo> result = new DeltaSteppingSearch(pool).computeClosestExits(graph, exits);
+            Map<String, ExitInfo> expected = new A2().computeClosestExits(graph, exits);
+            assertEquals(expected.keySet(), result.keySet());
+            assertEquals("C", result.get("A").exitRoom);
+            assertEquals(4, result.get("A").distance);
+            assertNull(result.get("E").exitRoom);
+            assertEquals(Integer.MAX_VALUE, result.get("E").distance);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMatchesSequentialOnRandomGraphs() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(14);
+            for (int round = 0; round < 30; round++) {
+                Map<String, List<Edge>> graph = CompiledRoomGraphTest.randomGraph(random, 100, 400, 1 + random.nextInt(30));
+                CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+                List<String> exits = Arrays.asList("r" + random.nextInt(100), "r" + random.nextInt(100), "r" + random.nextInt(100));
+                int delta = round % 3 == 0 ? 0 : 1 + random.nextInt(20);
+                assertSameDistances(ExitDistances.compute(compiled, exits),
+                        new DeltaSteppingSearch(pool, delta).compute(compiled, exits));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeFrontiersSplitAcrossTasks() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<String, List<Edge>> graph = ClosestExitBenchmark.gridGraph(40_000, 4, new Random(5));
+            CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+            List<String> exits = Arrays.asList("r0", "r20000", "r39999", "r100");
+            for (int delta : new int[] { 1, 4, 50 }) {
+                assertSameDistances(ExitDistances.compute(compiled, exits),
+                        new DeltaSteppingSearch(pool, delta).compute(compiled, exits));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSameDistances(ExitDistances expected, ExitDistances actual) {
+        for (int room = 0; room < expected.graph().roomCount(); room++) {
+            assertEquals(expected.distance(room), actual.distance(room));
+            assertEquals(expected.nearestExit(room), actual.nearestExit(room));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for the DistanceQueue implementations.
+ */
+public class DistanceQueueTest {
+
+    @Test
+    public void testDecreaseKeyReordersRooms() {
+        for (DistanceQueue queue : queues(4, 10)) {
+            queue.update(0, DistanceQueue.key(5, 0));
+            queue.update(1, DistanceQueue.key(3, 0));
+            queue.update(2, DistanceQueue.key(7, 0));
+            queue.update(2, DistanceQueue.key(1, 0)); // decrease
+            queue.update(1, DistanceQueue.key(9, 0)); // larger key is ignored
+
+            assertEquals(2, queue.poll());
+            assertEquals(1, queue.poll());
+            assertEquals(0, queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testClearKeepsQueueUsable() {
+        for (DistanceQueue queue : queues(3, 4)) {
+            queue.update(0, DistanceQueue.key(2, 0));
+            queue.update(1, DistanceQueue.key(4, 0));
+            queue.clear();
+            assertTrue(queue.isEmpty());
+
+            queue.update(1, DistanceQueue.key(20, 0));
+            assertEquals(1, queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testMonotoneRandomOperations() {
+        Random random = new Random(12);
+        int rooms = 200;
+        int maxWeight = 9;
+        for (DistanceQueue queue : queues(rooms, maxWeight)) {
+            Map<Integer, Integer> reference = new HashMap<>();
+            int last = 0;
+            for (int step = 0; step < 20_000; step++) {
+                if (!reference.isEmpty() && random.nextInt(3) == 0) {
+                    int room = queue.poll();
+                    int dist = reference.remove(room);
+                    assertTrue("polled out of order", dist >= last);
+                    for (int d : reference.values()) assertTrue(dist <= d);
+                    last = dist;
+                } else {
+                    int room = random.nextInt(rooms);
+                    int dist = last + random.nextInt(maxWeight + 1);
+                    Integer old = reference.get(room);
+                    if (old == null || dist < old) reference.put(room, dist);
+                    queue.update(room, DistanceQueue.key(dist, 0));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBucketQueueRejectsKeysOutsideWindow() {
+        BucketQueue queue = new BucketQueue(4, 3);
+        queue.update(0, DistanceQueue.key(10, 0));
+        try {
+            queue.update(1, DistanceQueue.key(14, 0));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testAllQueuesAgreeOnExitDistances() {
+        Random random = new Random(21);
+        for (int round = 0; round < 20; round++) {
+            // weight 0 edges exercise the bucket queue's re-polling path
+            Map<String, List<Edge>> graph = CompiledRoomGraphTest.randomGraph(random, 80, 300, 3);
+            CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+            List<String> exits = Arrays.asList("r" + random.nextInt(80), "r" + random.nextInt(80), "r" + random.nextInt(80));
+
+            ExitDistances heap = ExitDistances.compute(compiled, exits, new IndexedMinHeap(compiled.roomCount()));
+            ExitDistances buckets = ExitDistances.compute(compiled, exits,
+                    new BucketQueue(compiled.roomCount(), compiled.maxWeight()));
+            for (int room = 0; room < compiled.roomCount(); room++) {
+                assertEquals(heap.distance(room), buckets.distance(room));
+                assertEquals(heap.nearestExit(room), buckets.nearestExit(room));
+            }
+        }
+    }
+
+    @Test
+    public void testQueueChoiceFollowsMaxWeight() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("A", Arrays.asList(new Edge("B", 3)));
+        assertTrue(DistanceQueue.forGraph(CompiledRoomGraph.compile(graph)) instanceof BucketQueue);
+
+        graph.put("B", Arrays.asList(new Edge("A", DistanceQueue.BUCKET_WEIGHT_LIMIT + 1)));
+        assertTrue(DistanceQueue.forGraph(CompiledRoomGraph.compile(graph)) instanceof IndexedMinHeap);
+    }
+
+    private static List<DistanceQueue> queues(int rooms, int maxWeight) {
+        return Arrays.asList(new IndexedMinHeap(rooms), new BucketQueue(rooms, maxWeight));
+    }
+}
@@ -0,0 +1,144 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for DynamicExitIndex.
+ */
+public class DynamicExitIndexTest {
+
+    @Test
+    public void testClosingDoorReroutes() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("EXIT", Arrays.asList(new Edge("A", 1), new Edge("B", 5)));
+        graph.put("A", Arrays.asList(new Edge("C", 1)));
+        graph.put("B", Arrays.asList(new Edge("C", 1)));
+        graph.put("C", Collections.emptyList());
+
+        DynamicExitIndex index = new DynamicExitIndex(graph, Collections.singletonList("EXIT"));
+        assertEquals(2, index.distance("C"));
+
+        index.removeEdge("EXIT", "A");
+        assertEquals(6, index.distance("C"));
+        assertNull(index.info("A").exitRoom);
+        assertEquals(Integer.MAX_VALUE, index.distance("A"));
+
+        index.setEdge("EXIT", "A", 1);
+        assertEquals(2, index.distance("C"));
+        assertEquals("EXIT", index.info("C").exitRoom);
+    }
+
+    @Test
+    public void testExitChanges() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("X", Arrays.asList(new Edge("M", 3)));
+        graph.put("Y", Arrays.asList(new Edge("M", 3)));
+        graph.put("M", Collections.emptyList());
+
+        DynamicExitIndex index = new DynamicExitIndex(graph, Arrays.asList("Y", "X"));
+        assertEquals("Y", index.info("M").exitRoom);
+
+        assertTrue(index.removeExit("Y"));
+        assertEquals("X", index.info("M").exitRoom);
+        assertEquals(Integer.MAX_VALUE, index.distance("Y"));
+
+        // re-added exits lose ties to the ones already present
+        index.addExit("Y");
+        assertEquals("X", index.info("M").exitRoom);
+        assertEquals(0, index.distance("Y"));
+        assertFalse(index.removeExit("M"));
+    }
+
+    @Test
+    public void testLocalUpdateStaysLocal() {
+        Map<String, List<Edge>> graph = ClosestExitBenchmark.gridGraph(10_000, 5, new Random(3));
+        DynamicExitIndex index = new DynamicExitIndex(graph, Collections.singletonList("r0"));
+        assertEquals(10_000, index.lastRepairSize());
+
+        // a door in the far corner only matters to the rooms behind it
+        index.setEdge("r9999", "r9998", 1000);
+        assertTrue(index.lastRepairSize() < 100);
+        index.removeEdge("r9898", "r9998");
+        assertTrue(index.lastRepairSize() < 100);
+    }
+
+    @Test
+    public void testRandomUpdatesMatchFullRecompute() {
+        Random random = new Random(13);
+        int rooms = 40;
+        Map<String, Map<String, Integer>> edges = new HashMap<>();
+        for (int i = 0; i < rooms; i++) edges.put("r" + i, new HashMap<>());
+        for (int i = 0; i < 100; i++) {
+            edges.get("r" + random.nextInt(rooms)).put("r" + random.nextInt(rooms), random.nextInt(6));
+        }
+        List<String> exits = new ArrayList<>(Arrays.asList("r0", "r1"));
+
+        DynamicExitIndex index = new DynamicExitIndex(toGraph(edges), exits);
+        for (int step = 0; step < 2000; step++) {
+            String from = "r" + random.nextInt(rooms);
+            String to = "r" + random.nextInt(rooms);
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    int weight = random.nextInt(6);
+                    edges.get(from).put(to, weight);
+                    index.setEdge(from, to, weight);
+                    break;
+                case 2:
+                    assertEquals(edges.get(from).remove(to) != null, index.removeEdge(from, to));
+                    break;
+                case 3:
+                    if (!exits.contains(from)) exits.add(from);
+                    index.addExit(from);
+                    break;
+                default:
+                    assertEquals(exits.remove(from), index.removeExit(from));
+                    break;
+            }
+
+            Map<String, ExitInfo> expected = new A2().computeClosestExits(toGraph(edges), exits);
+            Map<String, ExitInfo> actual = index.toMap();
+            assertEquals(expected.keySet(), actual.keySet());
+            for (String room : expected.keySet()) {
+                assertEquals(room, expected.get(room).distance, actual.get(room).distance);
+                assertEquals(room, expected.get(room).exitRoom, actual.get(room).exitRoom);
+            }
+        }
+    }
+
+    @Test
+    public void testToMapMatchesExitDistancesOnTargetOnlyRooms() {
+        Random random = new Random(21);
+        for (int trial = 0; trial < 50; trial++) {
+            // only some rooms are keys; the rest appear only as targets or exits
+            Map<String, List<Edge>> graph = new HashMap<>();
+            for (int i = 0; i < 10; i++) {
+                List<Edge> edges = new ArrayList<>();
+                for (int e = random.nextInt(4); e > 0; e--) edges.add(new Edge("r" + random.nextInt(20), random.nextInt(5)));
+                graph.put("r" + i, edges);
+            }
+            List<String> exits = Arrays.asList("r" + random.nextInt(20), "r" + random.nextInt(20), "gone");
+
+            Map<String, ExitInfo> expected = ExitDistances.compute(CompiledRoomGraph.compile(graph), exits).toMap();
+            Map<String, ExitInfo> actual = new DynamicExitIndex(graph, exits).toMap();
+            assertEquals(graph.keySet(), actual.keySet());
+            for (String room : expected.keySet()) {
+                assertEquals(room, expected.get(room).distance, actual.get(room).distance);
+                assertEquals(room, expected.get(room).exitRoom, actual.get(room).exitRoom);
+            }
+        }
+    }
+
+    private static Map<String, List<Edge>> toGraph(Map<String, Map<String, Integer>> edges) {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> entry : edges.entrySet()) {
+            List<Edge> list = new ArrayList<>();
+            for (Map.Entry<String, Integer> edge : entry.getValue().entrySet()) {
+                list.add(new Edge(edge.getKey(), edge.getValue()));
+            }
+            graph.put(entry.getKey(), list);
+        }
+        return graph;
+    }
+}
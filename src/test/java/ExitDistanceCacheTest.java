@@ -0,0 +1,125 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * JUnit 4 tests for ExitDistanceCache.
+ */
+public class ExitDistanceCacheTest {
+
+    private static Map<String, List<Edge>> chain(int rooms, int weight) {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        for (int i = 0; i < rooms; i++) {
+            graph.put("r" + i, i + 1 < rooms ? Arrays.asList(new Edge("r" + (i + 1), weight)) : Collections.emptyList());
+        }
+        return graph;
+    }
+
+    @Test
+    public void testRepeatedCallsHit() {
+        ExitDistanceCache cache = new ExitDistanceCache(1000);
+        Map<String, List<Edge>> graph = chain(10, 2);
+        List<String> exits = Collections.singletonList("r0");
+
+        Map<String, ExitInfo> first = cache.computeClosestExits(graph, exits);
+        Map<String, ExitInfo> second = cache.computeClosestExits(chain(10, 2), new ArrayList<>(exits));
+        assertSame(first, second);
+        assertEquals(18, second.get("r9").distance);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testChangedGraphOrExitsMiss() {
+        ExitDistanceCache cache = new ExitDistanceCache(1000);
+        Map<String, ExitInfo> a = cache.computeClosestExits(chain(10, 2), Collections.singletonList("r0"));
+        Map<String, ExitInfo> b = cache.computeClosestExits(chain(10, 3), Collections.singletonList("r0"));
+        Map<String, ExitInfo> c = cache.computeClosestExits(chain(10, 2), Arrays.asList("r0", "r5"));
+        assertEquals(18, a.get("r9").distance);
+        assertEquals(27, b.get("r9").distance);
+        assertEquals(8, c.get("r9").distance);
+        assertEquals(3, cache.misses());
+        assertNotEquals(ExitDistanceCache.fingerprint(chain(10, 2)), ExitDistanceCache.fingerprint(chain(10, 3)));
+    }
+
+    @Test
+    public void testEqualHashCodesDoNotCollide() {
+        // "Aa" and "BB" have the same String.hashCode
+        Map<String, List<Edge>> aa = new HashMap<>();
+        aa.put("Aa", Collections.emptyList());
+        aa.put("X", Collections.singletonList(new Edge("Aa", 1)));
+        Map<String, List<Edge>> bb = new HashMap<>();
+        bb.put("BB", Collections.emptyList());
+        bb.put("X", Collections.singletonList(new Edge("BB", 1)));
+        assertNotEquals(ExitDistanceCache.fingerprint(aa), ExitDistanceCache.fingerprint(bb));
+
+        ExitDistanceCache cache = new ExitDistanceCache(1000);
+        assertTrue(cache.computeClosestExits(aa, Collections.singletonList("Aa")).containsKey("Aa"));
+        Map<String, ExitInfo> result = cache.computeClosestExits(bb, Collections.singletonList("Aa"));
+        assertFalse(result.containsKey("Aa"));
+        assertTrue(result.containsKey("BB"));
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+        assertTrue(cache.computeClosestExits(aa, Collections.singletonList("Aa")).containsKey("Aa"));
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void testCallerVersionAndFingerprintAreSeparate() {
+        ExitDistanceCache cache = new ExitDistanceCache(1000);
+        Map<String, List<Edge>> graph = chain(10, 2);
+        List<String> exits = new ArrayList<>(Collections.singletonList("r0"));
+        cache.computeClosestExits(ExitDistanceCache.fingerprint(graph), chain(10, 3), exits);
+        assertEquals(18, cache.computeClosestExits(graph, exits).get("r9").distance);
+        assertEquals(0, cache.hits());
+
+        // the stored key keeps its own copy of the exits
+        exits.add("r5");
+        assertEquals(8, cache.computeClosestExits(graph, exits).get("r9").distance);
+        assertEquals(18, cache.computeClosestExits(graph, Collections.singletonList("r0")).get("r9").distance);
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        ExitDistanceCache cache = new ExitDistanceCache(25);
+        Map<String, List<Edge>> graph = chain(10, 1);
+        cache.computeClosestExits(1, graph, Collections.singletonList("r0"));
+        cache.computeClosestExits(2, graph, Collections.singletonList("r0"));
+        cache.computeClosestExits(1, graph, Collections.singletonList("r0")); // version 1 is now newer
+        cache.computeClosestExits(3, graph, Collections.singletonList("r0"));
+
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.size());
+        assertEquals(20, cache.weight());
+        cache.computeClosestExits(1, graph, Collections.singletonList("r0"));
+        assertEquals(2, cache.hits());
+
+        cache.invalidate(1);
+        assertEquals(1, cache.size());
+        assertEquals(10, cache.weight());
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        ExitDistanceCache cache = new ExitDistanceCache(10_000);
+        Map<String, List<Edge>> graph = chain(100, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long version = i % 5;
+                results.add(pool.submit(() -> cache.computeClosestExits(version, graph,
+                        Collections.singletonList("r0")).get("r99").distance));
+            }
+            for (Future<Integer> result : results) assertEquals(99, (int) result.get());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(200, cache.hits() + cache.misses());
+        assertEquals(5, cache.size());
+        assertEquals(500, cache.weight());
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * JUnit 4 tests for next-hop routes recorded by the closest-exit searches.
+ */
+public class ExitRouteTest {
+
+    @Test
+    public void testRouteFollowsShortestPath() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        // A -5- B -5- C; A -2- D -2- C
+        graph.put("A", Arrays.asList(new Edge("B", 5), new Edge("D", 2)));
+        graph.put("B", Arrays.asList(new Edge("A", 5), new Edge("C", 5)));
+        graph.put("C", Arrays.asList(new Edge("B", 5), new Edge("D", 2)));
+        graph.put("D", Arrays.asList(new Edge("A", 2), new Edge("C", 2)));
+        graph.put("E", Collections.emptyList());
+
+        ExitDistances distances = ExitDistances.compute(CompiledRoomGraph.compile(graph), Arrays.asList("B", "C"));
+        assertEquals(Arrays.asList("A", "D", "C"), distances.route("A"));
+        assertEquals(Collections.singletonList("C"), distances.route("C"));
+        assertTrue(distances.route("E").isEmpty());
+        assertTrue(distances.route("nowhere").isEmpty());
+        assertEquals(-1, distances.nextHop(distances.graph().id("E")));
+    }
+
+    @Test
+    public void testRoutesAreValidForEverySearch() {
+        Random random = new Random(17);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                // weights from 0 so zero-weight ties are covered
+                CompiledRoomGraph graph = CompiledRoomGraph.compile(CompiledRoomGraphTest.randomGraph(random, 120, 400, 4));
+                List<String> exits = Arrays.asList("r" + random.nextInt(120), "r" + random.nextInt(120), "r" + random.nextInt(120));
+
+                checkRoutes(ExitDistances.compute(graph, exits, new IndexedMinHeap(graph.roomCount())));
+                checkRoutes(ExitDistances.compute(graph, exits, new BucketQueue(graph.roomCount(), graph.maxWeight())));
+                checkRoutes(new DeltaSteppingSearch(pool, 2).compute(graph, exits));
+                checkRoutes(new LazyExitSearch(graph, exits).finish());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLazyRouteSettlesOnlyWhatItNeeds() {
+        Map<String, List<Edge>> graph = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) graph.put("r" + i, Arrays.asList(new Edge("r" + (i + 1), 1)));
+        LazyExitSearch search = new LazyExitSearch(CompiledRoomGraph.compile(graph), Collections.singletonList("r0"));
+        assertEquals(Arrays.asList("r3", "r2", "r1", "r0"), search.route("r3"));
+        assertEquals(4, search.settledCount());
+    }
+
+    /**
+     * Every route ends at the room's nearest exit and its edge weights add up
+     * to the room's distance.
+     */
+    private static void checkRoutes(ExitDistances distances) {
+        CompiledRoomGraph graph = distances.graph();
+        for (int room = 0; room < graph.roomCount(); room++) {
+            int[] route = distances.routeIds(room);
+            if (distances.nearestExit(room) == -1) {
+                assertEquals(0, route.length);
+                continue;
+            }
+            assertTrue("route loops", route.length <= graph.roomCount());
+            assertEquals(room, route[0]);
+            assertEquals(distances.nearestExit(room), route[route.length - 1]);
+            long total = 0;
+            for (int i = route.length - 1; i > 0; i--) {
+                total += weight(graph, route[i], route[i - 1]);
+            }
+            assertEquals(distances.distance(room), total);
+        }
+    }
+
+    private static int weight(CompiledRoomGraph graph, int from, int to) {
+        int best = -1;
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+            if (graph.edgeTarget(e) == to && (best == -1 || graph.edgeWeight(e) < best)) best = graph.edgeWeight(e);
+        }
+        assertTrue("no edge " + from + " -> " + to, best != -1);
+        return best;
+    }
+}
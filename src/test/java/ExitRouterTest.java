@@ -0,0 +1,115 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for ExitRouter and ExitHeuristic.
+ */
+public class ExitRouterTest {
+
+    @Test
+    public void testPointQueryMatchesFullSearch() {
+        Random random = new Random(18);
+        for (int round = 0; round < 20; round++) {
+            CompiledRoomGraph graph = CompiledRoomGraph.compile(CompiledRoomGraphTest.randomGraph(random, 100, 350, 6));
+            List<String> exits = Arrays.asList("r" + random.nextInt(100), "r" + random.nextInt(100), "r" + random.nextInt(100));
+            ExitDistances expected = ExitDistances.compute(graph, exits);
+
+            for (ExitHeuristic heuristic : Arrays.asList(ExitHeuristic.none(), ExitHeuristic.landmarks(expected, 4))) {
+                ExitRouter router = new ExitRouter(graph, exits, heuristic);
+                for (int room = 0; room < graph.roomCount(); room++) {
+                    ExitInfo info = router.query(graph.name(room));
+                    assertEquals(expected.info(room).distance, info.distance);
+                    assertEquals(expected.info(room).exitRoom, info.exitRoom);
+                    List<String> route = router.route(graph.name(room));
+                    if (info.exitRoom == null) {
+                        assertTrue(route.isEmpty());
+                    } else {
+                        assertEquals(graph.name(room), route.get(0));
+                        assertEquals(info.exitRoom, route.get(route.size() - 1));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCoordinatesNarrowTheSearch() {
+        int rooms = 40_000;
+        int side = 200;
+        Map<String, List<Edge>> map = ClosestExitBenchmark.gridGraph(rooms, 3, new Random(8));
+        Map<String, double[]> positions = new HashMap<>();
+        for (int i = 0; i < rooms; i++) positions.put("r" + i, new double[] { i % side, i / side });
+        CompiledRoomGraph graph = CompiledRoomGraph.compile(map);
+        List<String> exits = Arrays.asList("r0", "r39999");
+
+        ExitRouter plain = new ExitRouter(graph, exits, ExitHeuristic.none());
+        ExitRouter guided = new ExitRouter(graph, exits, ExitHeuristic.coordinates(graph, positions, 1.0, exits));
+        ExitDistances expected = ExitDistances.compute(graph, exits);
+
+        String room = "r" + (side * 60 + 60);
+        assertEquals(expected.info(graph.id(room)).distance, guided.query(room).distance);
+        assertEquals(plain.query(room).distance, guided.query(room).distance);
+        plain.query(room);
+        guided.query(room);
+        assertTrue(guided.lastSettled() * 2 < plain.lastSettled());
+    }
+
+    @Test
+    public void testLandmarksNarrowTheSearch() {
+        CompiledRoomGraph graph = CompiledRoomGraph.compile(ClosestExitBenchmark.gridGraph(40_000, 5, new Random(9)));
+        List<String> exits = Collections.singletonList("r0");
+        ExitDistances distances = ExitDistances.compute(graph, exits);
+
+        ExitRouter plain = new ExitRouter(graph, exits, ExitHeuristic.none());
+        ExitRouter guided = new ExitRouter(graph, exits, ExitHeuristic.landmarks(distances, 4));
+        String room = "r30150";
+        assertEquals(distances.info(graph.id(room)).distance, guided.query(room).distance);
+        plain.query(room);
+        assertTrue(guided.lastSettled() * 2 < plain.lastSettled());
+    }
+
+    @Test
+    public void testEarlierDistancesGuideSearchAfterDoorsClose() {
+        Random random = new Random(19);
+        Map<String, List<Edge>> map = ClosestExitBenchmark.gridGraph(10_000, 5, random);
+        List<String> exits = Arrays.asList("r0", "r9999");
+        ExitDistances before = ExitDistances.compute(CompiledRoomGraph.compile(map), exits);
+
+        // close some doors and slow others down
+        for (List<Edge> edges : map.values()) {
+            for (int i = edges.size() - 1; i >= 0; i--) {
+                int roll = random.nextInt(50);
+                if (roll == 0) edges.remove(i);
+                else if (roll == 1) edges.set(i, new Edge(edges.get(i).to, edges.get(i).weight + 20));
+            }
+        }
+        CompiledRoomGraph after = CompiledRoomGraph.compile(map);
+        ExitDistances expected = ExitDistances.compute(after, exits);
+        ExitRouter router = new ExitRouter(after, exits, ExitHeuristic.previous(before, after));
+        ExitRouter plain = new ExitRouter(after, exits, ExitHeuristic.none());
+
+        int settled = 0;
+        int plainSettled = 0;
+        for (int i = 0; i < 200; i++) {
+            int room = random.nextInt(after.roomCount());
+            ExitInfo info = router.query(after.name(room));
+            assertEquals(expected.info(room).distance, info.distance);
+            assertEquals(expected.info(room).exitRoom, info.exitRoom);
+            settled += router.lastSettled();
+            plain.query(after.name(room));
+            plainSettled += plain.lastSettled();
+        }
+        assertTrue(settled + " vs " + plainSettled, settled * 10 < plainSettled);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingPositionRejected() {
+        Map<String, List<Edge>> map = new HashMap<>();
+        map.put("A", Arrays.asList(new Edge("B", 1)));
+        CompiledRoomGraph graph = CompiledRoomGraph.compile(map);
+        ExitHeuristic.coordinates(graph, Collections.singletonMap("A", new double[] { 0, 0 }), 1.0,
+                Collections.singletonList("A"));
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for KNearestExits.
+ */
+public class KNearestExitsTest {
+
+    @Test
+    public void testAlternativesInDistanceOrder() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("X", Arrays.asList(new Edge("R", 2)));
+        graph.put("Y", Arrays.asList(new Edge("R", 5)));
+        graph.put("Z", Arrays.asList(new Edge("Y", 1)));
+        graph.put("R", Collections.emptyList());
+        graph.put("S", Collections.emptyList());
+
+        KNearestExits nearest = KNearestExits.compute(CompiledRoomGraph.compile(graph), Arrays.asList("X", "Y", "Z"), 3);
+        List<ExitInfo> infos = nearest.infos("R");
+        assertEquals(3, infos.size());
+        assertEquals("X", infos.get(0).exitRoom);
+        assertEquals(2, infos.get(0).distance);
+        assertEquals("Y", infos.get(1).exitRoom);
+        assertEquals(5, infos.get(1).distance);
+        assertEquals("Z", infos.get(2).exitRoom);
+        assertEquals(6, infos.get(2).distance);
+        assertTrue(nearest.infos("S").isEmpty());
+
+        ExitInfo open = nearest.firstAvailable("R", new HashSet<>(Arrays.asList("X", "Y")));
+        assertEquals("Z", open.exitRoom);
+        assertNull(nearest.firstAvailable("R", new HashSet<>(Arrays.asList("X", "Y", "Z"))));
+    }
+
+    @Test
+    public void testMatchesPerExitSearches() {
+        Random random = new Random(19);
+        for (int round = 0; round < 15; round++) {
+            CompiledRoomGraph graph = CompiledRoomGraph.compile(CompiledRoomGraphTest.randomGraph(random, 80, 300, 5));
+            List<String> exits = new ArrayList<>();
+            for (int i = 0; i < 6; i++) exits.add("r" + random.nextInt(80));
+            int k = 1 + random.nextInt(4);
+            KNearestExits nearest = KNearestExits.compute(graph, exits, k);
+
+            // brute force: one search per exit, then sort by (distance, list position),
+            // an exit's own label first
+            int[] exitIds = ExitDistances.exitIds(graph, exits);
+            ExitDistances[] single = new ExitDistances[exitIds.length];
+            for (int i = 0; i < exitIds.length; i++) {
+                single[i] = ExitDistances.compute(graph, Collections.singletonList(graph.name(exitIds[i])));
+            }
+            ExitDistances all = ExitDistances.compute(graph, exits);
+            for (int room = 0; room < graph.roomCount(); room++) {
+                List<long[]> expected = new ArrayList<>();
+                for (int i = 0; i < exitIds.length; i++) {
+                    int d = single[i].distance(room);
+                    if (d != ExitDistances.UNREACHABLE) expected.add(new long[] { d, i });
+                }
+                int own = room;
+                expected.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                        : exitIds[(int) a[1]] == own ? -1 : exitIds[(int) b[1]] == own ? 1 : Long.compare(a[1], b[1]));
+
+                assertEquals(Math.min(k, expected.size()), nearest.labelCount(room));
+                for (int j = 0; j < nearest.labelCount(room); j++) {
+                    assertEquals(expected.get(j)[0], nearest.distance(room, j));
+                    assertEquals(exitIds[(int) expected.get(j)[1]], nearest.exit(room, j));
+                }
+                if (nearest.labelCount(room) > 0) {
+                    assertEquals(all.distance(room), nearest.distance(room, 0));
+                }
+            }
+        }
+    }
+}
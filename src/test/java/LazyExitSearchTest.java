@@ -0,0 +1,70 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for LazyExitSearch.
+ */
+public class LazyExitSearchTest {
+
+    @Test
+    public void testStopsOnceRequestedRoomsAreSettled() {
+        Map<String, List<Edge>> graph = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            graph.put("r" + i, Arrays.asList(new Edge("r" + (i + 1), 1)));
+        }
+        LazyExitSearch search = new LazyExitSearch(CompiledRoomGraph.compile(graph), Collections.singletonList("r0"));
+
+        ExitInfo info = search.query("r10");
+        assertEquals("r0", info.exitRoom);
+        assertEquals(10, info.distance);
+        assertEquals(11, search.settledCount());
+
+        // an earlier room is already settled, a later one resumes the frontier
+        search.query("r5");
+        assertEquals(11, search.settledCount());
+        assertEquals(20, search.query("r20").distance);
+        assertEquals(21, search.settledCount());
+    }
+
+    @Test
+    public void testBatchQuery() {
+        Map<String, List<Edge>> graph = new HashMap<>();
+        graph.put("A", Arrays.asList(new Edge("B", 1)));
+        graph.put("B", Arrays.asList(new Edge("A", 1)));
+        graph.put("C", Collections.emptyList());
+        LazyExitSearch search = new LazyExitSearch(CompiledRoomGraph.compile(graph), Collections.singletonList("A"));
+
+        Map<String, ExitInfo> result = search.query(Arrays.asList("B", "C", "nowhere"));
+        assertEquals(2, result.size());
+        assertEquals(1, result.get("B").distance);
+        assertNull(result.get("C").exitRoom);
+        assertEquals(Integer.MAX_VALUE, result.get("C").distance);
+        assertNull(search.query("nowhere"));
+    }
+
+    @Test
+    public void testInterleavedQueriesMatchFullSearch() {
+        Random random = new Random(15);
+        for (int round = 0; round < 10; round++) {
+            Map<String, List<Edge>> graph = CompiledRoomGraphTest.randomGraph(random, 200, 600, 5);
+            CompiledRoomGraph compiled = CompiledRoomGraph.compile(graph);
+            List<String> exits = Arrays.asList("r" + random.nextInt(200), "r" + random.nextInt(200));
+            Map<String, ExitInfo> expected = ExitDistances.compute(compiled, exits).toMap();
+
+            LazyExitSearch search = new LazyExitSearch(compiled, exits);
+            for (int q = 0; q < 50; q++) {
+                String room = "r" + random.nextInt(200);
+                ExitInfo info = search.query(room);
+                assertEquals(expected.get(room).distance, info.distance);
+                assertEquals(expected.get(room).exitRoom, info.exitRoom);
+            }
+            Map<String, ExitInfo> rest = search.finish().toMap();
+            for (String room : expected.keySet()) {
+                assertEquals(expected.get(room).distance, rest.get(room).distance);
+                assertEquals(expected.get(room).exitRoom, rest.get(room).exitRoom);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * JUnit 4 tests for LzwDecoder round trips against CommandCodebook.
+ */
+public class LzwDecoderTest {
+
+    /**
+     * Compress with a streaming encoder, keeping the codes of each sequence apart.
+     */
+    private static List<List<Integer>> encode(DLBNode root, List<List<String>> sequences) {
+        List<List<Integer>> codes = new ArrayList<>();
+        codes.add(new ArrayList<>());
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(CommandCodebook.wrap(root), new CodeSink() {
+            public void code(int code) { codes.get(codes.size() - 1).add(code); }
+            public void endSequence() { codes.add(new ArrayList<>()); }
+        });
+        for (List<String> sequence : sequences) {
+            encoder.accept(sequence);
+            encoder.endSequence();
+        }
+        codes.remove(codes.size() - 1);
+        return codes;
+    }
+
+    @Test
+    public void testKwKwKCase() {
+        List<List<String>> sequences = Collections.singletonList(
+            Arrays.asList("MOVE","MOVE","MOVE","MOVE","MOVE","MOVE"));
+        List<List<Integer>> codes = encode(CompressCommandPatternsTest.primitives("MOVE"), sequences);
+
+        // MOVE→0, then MOVE MOVE (code 1) is emitted in the step that defines it
+        assertEquals(Arrays.asList(0, 1, 2), codes.get(0));
+        assertEquals(sequences, new LzwDecoder(CompressCommandPatternsTest.primitives("MOVE")).decode(codes));
+    }
+
+    @Test
+    public void testRandomRoundTrip() {
+        String[] commands = { "MOVE", "FORWARD", "TURN", "LEFT", "RIGHT", "STOP" };
+        Random random = new Random(7);
+        List<List<String>> sequences = new ArrayList<>();
+        for (int s = 0; s < 40; s++) {
+            List<String> sequence = new ArrayList<>();
+            int len = random.nextInt(60);
+            for (int i = 0; i < len; i++) sequence.add(commands[random.nextInt(3 + s % 4)]);
+            sequences.add(sequence);
+        }
+
+        List<List<Integer>> codes = encode(CompressCommandPatternsTest.primitives(commands), sequences);
+        assertEquals(sequences, new LzwDecoder(CompressCommandPatternsTest.primitives(commands)).decode(codes));
+    }
+
+    @Test
+    public void testPreloadedPatternWithoutPrefixCode() {
+        DLBNode root = CompressCommandPatternsTest.primitives("MOVE", "FORWARD", "TURN");
+        // MOVE FORWARD TURN is known, MOVE FORWARD is not
+        root = CompressCommandPatternsTest.insertSequence(root, Arrays.asList("MOVE","FORWARD","TURN"), 3);
+
+        LzwDecoder decoder = new LzwDecoder(root);
+        String[] out = new String[8];
+        assertEquals(3, decoder.decodeInto(3, out, 2));
+        assertEquals(Arrays.asList("MOVE","FORWARD","TURN"), Arrays.asList(out).subList(2, 5));
+
+        List<List<String>> sequences = Collections.singletonList(
+            Arrays.asList("MOVE","FORWARD","MOVE","FORWARD","TURN","MOVE","FORWARD","TURN"));
+        DLBNode encoderRoot = CompressCommandPatternsTest.primitives("MOVE", "FORWARD", "TURN");
+        encoderRoot = CompressCommandPatternsTest.insertSequence(encoderRoot, Arrays.asList("MOVE","FORWARD","TURN"), 3);
+        List<List<Integer>> codes = encode(encoderRoot, sequences);
+        assertEquals(sequences, new LzwDecoder(root).decode(codes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUndefinedCodeRejected() {
+        new LzwDecoder(CompressCommandPatternsTest.primitives("MOVE")).accept(5);
+    }
+}
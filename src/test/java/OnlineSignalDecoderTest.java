@@ -0,0 +1,114 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for OnlineSignalDecoder.
+ */
+public class OnlineSignalDecoderTest {
+
+    @Test
+    public void testMatchesOfflineRecovery() {
+        Random random = new Random(23);
+        for (int round = 0; round < 200; round++) {
+            int rooms = 2 + random.nextInt(12);
+            Map<String, List<String>> graph = SignalRecoveryEngineTest.randomGraph(random, rooms, rooms * 2);
+            List<String> corrupted = SignalRecoveryEngineTest.randomTrace(random, rooms, random.nextInt(30));
+            String exit = "r" + random.nextInt(rooms);
+            SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+            if (engine.cost(corrupted, exit) == SignalRecoveryEngine.UNREACHABLE) continue;
+
+            // a lag longer than the trace never forces a commit
+            List<String> online = new ArrayList<>();
+            OnlineSignalDecoder decoder = new OnlineSignalDecoder(engine, corrupted.size() + 1, online::add);
+            for (String label : corrupted) decoder.accept(label);
+            assertTrue(decoder.finish(exit));
+            assertEquals(engine.recover(corrupted, exit), online);
+        }
+    }
+
+    @Test
+    public void testUnreachableExitMatchesOffline() {
+        Map<String, List<String>> graph = new HashMap<>();
+        graph.put("START", Collections.emptyList());
+        graph.put("A", Arrays.asList("B"));
+        graph.put("B", Collections.emptyList());
+        List<String> corrupted = Arrays.asList("A", "B", "A");
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+
+        List<String> online = new ArrayList<>();
+        OnlineSignalDecoder decoder = new OnlineSignalDecoder(engine, 1, online::add);
+        for (String label : corrupted) decoder.accept(label);
+        assertFalse(decoder.finish("B"));
+        assertEquals(engine.recover(corrupted, "B"), online);
+        assertEquals(Arrays.asList("B"), online);
+    }
+
+    @Test
+    public void testForcedDeadEndSendsNoDisconnectedExit() {
+        // A is a dead end; C can only be reached through B
+        Map<String, List<String>> graph = new HashMap<>();
+        graph.put("START", Arrays.asList("A", "B"));
+        graph.put("A", Collections.emptyList());
+        graph.put("B", Arrays.asList("C"));
+        graph.put("C", Collections.emptyList());
+        List<String> corrupted = Arrays.asList("A", "A", "A", "A", "A", "A", "A", "A");
+
+        List<String> online = new ArrayList<>();
+        OnlineSignalDecoder decoder = new OnlineSignalDecoder(new SignalRecoveryEngine(graph), 2, online::add);
+        for (String label : corrupted) decoder.accept(label);
+        assertEquals(Arrays.asList("A"), online);
+        assertFalse(decoder.finish("C"));
+        assertEquals(Arrays.asList("A"), online);
+    }
+
+    @Test
+    public void testCleanTraceCommitsWithoutWaiting() {
+        Map<String, List<String>> graph = RecoverSignalBenchmark.gridGraph(100);
+        List<String> walk = RecoverSignalBenchmark.randomWalk(graph, 500, new Random(5));
+        List<String> online = new ArrayList<>();
+        OnlineSignalDecoder decoder = new OnlineSignalDecoder(new SignalRecoveryEngine(graph), 1000, online::add);
+        int maxPending = 0;
+        for (String room : walk) {
+            decoder.accept(room);
+            maxPending = Math.max(maxPending, decoder.pending());
+        }
+        assertTrue("pending " + maxPending, maxPending < 20);
+        decoder.finish(walk.get(walk.size() - 1));
+        assertEquals(new SignalRecoveryEngine(graph).recover(walk, walk.get(walk.size() - 1)), online);
+    }
+
+    @Test
+    public void testFixedLagBoundsPendingAndKeepsAWalk() {
+        Random random = new Random(7);
+        Map<String, List<String>> graph = RecoverSignalBenchmark.gridGraph(64);
+        List<String> walk = RecoverSignalBenchmark.randomWalk(graph, 3000, random);
+        List<String> corrupted = RecoverSignalBenchmark.corrupt(walk, 64, random);
+        for (int i = 0; i < corrupted.size(); i += 40) corrupted.set(i, "r" + random.nextInt(64)); // extra noise
+
+        List<String> online = new ArrayList<>();
+        OnlineSignalDecoder decoder = new OnlineSignalDecoder(new SignalRecoveryEngine(graph), 4, online::add);
+        for (String label : corrupted) {
+            decoder.accept(label);
+            assertTrue(decoder.pending() <= 4);
+        }
+        String exit = walk.get(walk.size() - 1);
+        decoder.finish(exit);
+
+        assertEquals(exit, online.get(online.size() - 1));
+        String previous = "START";
+        for (String room : online) {
+            assertTrue(previous + " -> " + room, graph.get(previous).contains(room));
+            previous = room;
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoInputAfterFinish() {
+        Map<String, List<String>> graph = RecoverSignalBenchmark.gridGraph(4);
+        OnlineSignalDecoder decoder = new OnlineSignalDecoder(new SignalRecoveryEngine(graph), 8, room -> { });
+        decoder.finish("r0");
+        decoder.accept("r1");
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * JUnit 4 tests for ParallelCommandCompressor.
+ */
+public class ParallelCommandCompressorTest {
+
+    @Test
+    public void testRoundTripInOrder() {
+        List<List<String>> sequences = CompressCommandPatternsTest.randomSequences(new Random(1), 4, 1000, 50);
+        DLBNode start = CompressCommandPatternsTest.primitives();
+        ParallelCommandCompressor compressor = new ParallelCommandCompressor(new ForkJoinPool(4), 64);
+
+        ParallelCommandCompressor.Result result = compressor.compress(start, sequences);
+
+        assertEquals(16, result.segments);
+        assertEquals(sequences, ParallelCommandCompressor.decode(result.framed, start));
+        // the caller's trie is only read
+        assertNull(start.child);
+    }
+
+    @Test
+    public void testSplitCostReported() {
+        List<List<String>> sequences = CompressCommandPatternsTest.randomSequences(new Random(2), 4, 2000, 50);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CommandCodebook book = CommandCodebook.wrap(CompressCommandPatternsTest.primitives());
+        BitPackedCodeWriter writer = new BitPackedCodeWriter(bytes, book);
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, writer);
+        for (List<String> sequence : sequences) {
+            encoder.accept(sequence);
+            encoder.endSequence();
+        }
+        writer.finish();
+
+        ParallelCommandCompressor.Result result =
+            new ParallelCommandCompressor(ForkJoinPool.commonPool(), 250)
+                .compress(CompressCommandPatternsTest.primitives(), sequences);
+
+        // chunks relearn patterns from scratch, so they need at least as many codes
+        assertTrue(writer.codesWritten() <= result.codes);
+        double overhead = result.overheadVersus(bytes.size());
+        assertEquals((double) (result.bytes() - bytes.size()) / bytes.size(), overhead, 1e-12);
+        // narrower early codes can even win on random data, but never by much either way
+        assertTrue("split overhead " + overhead, Math.abs(overhead) < 0.25);
+    }
+
+    @Test
+    public void testBoundedChunks() {
+        List<List<String>> sequences = CompressCommandPatternsTest.randomSequences(new Random(3), 4, 300, 50);
+        ParallelCommandCompressor compressor = new ParallelCommandCompressor(
+            ForkJoinPool.commonPool(), 50, DictionaryPolicy.LRU, 40);
+
+        ParallelCommandCompressor.Result result = compressor.compress(CompressCommandPatternsTest.primitives(), sequences);
+        assertEquals(sequences,
+            ParallelCommandCompressor.decode(result.framed, CompressCommandPatternsTest.primitives()));
+    }
+}
@@ -0,0 +1,80 @@
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Rough throughput benchmark for ParallelCommandCompressor.
+ * Prints tokens per second for growing pool sizes and the split's size cost
+ * compared with one sequential bit-packed stream.
+ *
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes ParallelCompressionBenchmark
+ */
+public class ParallelCompressionBenchmark {
+
+    public static void main(String[] args) {
+        String[] commands = CompressCommandPatternsTest.COMMANDS;
+        DLBNode start = CompressCommandPatternsTest.primitives(commands);
+
+        // skewed command mix with recurring routines, closer to real robot logs than uniform noise
+        Random random = new Random(1);
+        List<List<String>> routines = new ArrayList<>();
+        for (int r = 0; r < 50; r++) {
+            List<String> routine = new ArrayList<>();
+            for (int i = 0; i < 4 + random.nextInt(8); i++) routine.add(commands[random.nextInt(commands.length)]);
+            routines.add(routine);
+        }
+        List<List<String>> sequences = new ArrayList<>();
+        long tokens = 0;
+        for (int s = 0; s < 40_000; s++) {
+            List<String> sequence = new ArrayList<>();
+            while (sequence.size() < 200) sequence.addAll(routines.get((int) Math.abs(random.nextGaussian() * 10) % 50));
+            sequences.add(sequence);
+            tokens += sequence.size();
+        }
+
+        long sequentialBytes = 0;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long t0 = System.nanoTime();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CommandCodebook book = CommandCodebook.wrap(copy(start));
+            BitPackedCodeWriter writer = new BitPackedCodeWriter(bytes, book);
+            StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, writer);
+            for (List<String> sequence : sequences) {
+                encoder.accept(sequence);
+                encoder.endSequence();
+            }
+            writer.finish();
+            best = Math.min(best, System.nanoTime() - t0);
+            sequentialBytes = bytes.size();
+        }
+        System.out.printf("sequential: %,d tokens -> %,d bytes, %.1f M tokens/s%n",
+                tokens, sequentialBytes, tokens / (best / 1e3));
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelCommandCompressor compressor = new ParallelCommandCompressor(pool, 1000);
+            ParallelCommandCompressor.Result result = null;
+            best = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                long t0 = System.nanoTime();
+                result = compressor.compress(start, sequences);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            pool.shutdown();
+            System.out.printf("%2d threads: %.1f M tokens/s, %d segments, %,d bytes, split cost %+.2f%%%n",
+                    threads, tokens / (best / 1e3), result.segments, result.bytes(),
+                    100 * result.overheadVersus(sequentialBytes));
+        }
+    }
+
+    // the sequential run grows its trie, so give it a private copy each time
+    private static DLBNode copy(DLBNode start) {
+        DLBNode root = null;
+        for (DLBNode node = start; node != null; node = node.sibling) {
+            root = CompressCommandPatternsTest.insertSequence(root, Arrays.asList(node.token), node.code);
+        }
+        return root;
+    }
+}
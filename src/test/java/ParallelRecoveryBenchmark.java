@@ -0,0 +1,73 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Rough throughput benchmark for ParallelSignalRecovery.
+ * Prints logs per second for a nightly-sized batch and the time of one long
+ * log on a large grid, for growing pool sizes, next to a sequential loop of
+ * A2-style calls that compile the graph once per log.
+ *
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes ParallelRecoveryBenchmark [logs] [rooms]
+ */
+public class ParallelRecoveryBenchmark {
+
+    public static void main(String[] args) {
+        int logs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int bigRooms = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Random random = new Random(25);
+
+        // 1) batch: many short logs on a facility-sized grid
+        int rooms = 900;
+        Map<String, List<String>> graph = RecoverSignalBenchmark.gridGraph(rooms);
+        List<List<String>> traces = new ArrayList<>();
+        List<String> exits = new ArrayList<>();
+        for (int t = 0; t < logs; t++) {
+            List<String> walk = RecoverSignalBenchmark.randomWalk(graph, 100 + random.nextInt(200), random);
+            traces.add(RecoverSignalBenchmark.corrupt(walk, rooms, random));
+            exits.add(walk.get(walk.size() - 1));
+        }
+
+        long t0 = System.nanoTime();
+        for (int t = 0; t < logs; t++) new SignalRecoveryEngine(graph).recover(traces.get(t), exits.get(t));
+        long compileEach = System.nanoTime() - t0;
+        System.out.printf("%d logs, %d rooms%ncompile per log: %8.1f logs/s%n", logs, rooms, logs / (compileEach / 1e9));
+
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelSignalRecovery batch = new ParallelSignalRecovery(engine, pool);
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) {
+                t0 = System.nanoTime();
+                batch.recoverAll(traces, exits);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            pool.shutdown();
+            System.out.printf("%2d threads:      %8.1f logs/s%n", threads, logs / (best / 1e9));
+        }
+
+        // 2) one long log on a large grid, rooms of each token split over the pool
+        Map<String, List<String>> big = RecoverSignalBenchmark.gridGraph(bigRooms);
+        List<String> walk = RecoverSignalBenchmark.randomWalk(big, 500, random);
+        List<String> corrupted = RecoverSignalBenchmark.corrupt(walk, bigRooms, random);
+        String exit = walk.get(walk.size() - 1);
+        SignalRecoveryEngine bigEngine = new SignalRecoveryEngine(big);
+        System.out.printf("one log, %d rooms, %d tokens%n", bigRooms, corrupted.size());
+        List<String> expected = bigEngine.recover(corrupted, exit);
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ParallelSignalRecovery single = new ParallelSignalRecovery(bigEngine, pool);
+            long best = Long.MAX_VALUE;
+            List<String> path = null;
+            for (int run = 0; run < 3; run++) {
+                t0 = System.nanoTime();
+                path = single.recover(corrupted, exit);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            pool.shutdown();
+            System.out.printf("%2d threads:      %8.1f ms   (same path: %b)%n", threads, best / 1e6,
+                    path.equals(expected));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * JUnit 4 tests for ParallelSignalRecovery.
+ */
+public class ParallelSignalRecoveryTest {
+
+    @Test
+    public void testBatchMatchesSequential() {
+        Random random = new Random(25);
+        int rooms = 30;
+        Map<String, List<String>> graph = SignalRecoveryEngineTest.randomGraph(random, rooms, rooms * 3);
+        List<List<String>> traces = new ArrayList<>();
+        List<String> exits = new ArrayList<>();
+        for (int t = 0; t < 200; t++) {
+            // mixed lengths, so reused buffers see shorter traces after longer ones
+            traces.add(SignalRecoveryEngineTest.randomTrace(random, rooms, random.nextInt(80)));
+            exits.add(t % 50 == 0 ? "nowhere" : "r" + random.nextInt(rooms));
+        }
+
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<List<String>> paths = new ParallelSignalRecovery(engine, pool).recoverAll(traces, exits);
+            assertEquals(traces.size(), paths.size());
+            for (int t = 0; t < traces.size(); t++) {
+                assertEquals("trace " + t, engine.recover(traces.get(t), exits.get(t)), paths.get(t));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSplitLayersMatchSequential() {
+        // enough rooms that each token's per-room pass is split over the pool
+        Random random = new Random(26);
+        int rooms = 5 * SignalRecoveryEngine.PARALLEL_ROOMS;
+        Map<String, List<String>> graph = SignalRecoveryEngineTest.randomGraph(random, rooms, rooms * 3);
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            ParallelSignalRecovery parallel = new ParallelSignalRecovery(engine, pool);
+            for (int round = 0; round < 3; round++) {
+                List<String> corrupted = SignalRecoveryEngineTest.randomTrace(random, rooms, 20 + round * 15);
+                String exit = "r" + random.nextInt(rooms);
+                assertEquals(engine.recover(corrupted, exit), parallel.recover(corrupted, exit));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOneExitPerTrace() {
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(SignalRecoveryEngineTest.randomGraph(new Random(1), 3, 3));
+        new ParallelSignalRecovery(engine, ForkJoinPool.commonPool())
+                .recoverAll(Collections.singletonList(Arrays.asList("r1")), Collections.emptyList());
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.*;
+
+/**
+ * Rough benchmark for recoverSignal on a grid-like facility map. Compares the
+ * original all-pairs DP over String maps with SignalRecoveryEngine, keeping all
+ * backpointers, with checkpoints every sqrt(n) tokens, online with a fixed
+ * lag and beam-pruned to the best 32 rooms per token, on a trace walked through the grid with some labels swapped, dropped
+ * and duplicated.
+ *
+ * Run with: mvn test-compile && java -cp target/classes:target/test-classes RecoverSignalBenchmark [rooms] [tokens]
+ */
+public class RecoverSignalBenchmark {
+
+    public static void main(String[] args) {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int tokens = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Random random = new Random(3);
+        Map<String, List<String>> graph = gridGraph(rooms);
+        List<String> walk = randomWalk(graph, tokens, random);
+        List<String> corrupted = corrupt(walk, rooms, random);
+        String exit = walk.get(walk.size() - 1);
+        System.out.printf("%d rooms, %d tokens%n", rooms, corrupted.size());
+
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        int every = (int) Math.ceil(Math.sqrt(corrupted.size()));
+        int rounds = 10;
+        for (int round = 0; round < rounds; round++) { // earlier rounds are warm-up
+            boolean report = round == rounds - 1;
+            long start = System.nanoTime();
+            List<String> path = engine.recover(corrupted, exit, Integer.MAX_VALUE);
+            if (report) {
+                System.out.printf("%-16s %10.1f ms   (path %d rooms, cost %d)%n", "engine",
+                        (System.nanoTime() - start) / 1e6, path.size(), engine.cost(corrupted, exit));
+            }
+            start = System.nanoTime();
+            List<String> checkpointed = engine.recover(corrupted, exit, every);
+            if (report) {
+                System.out.printf("%-16s %10.1f ms   (same path: %b)%n", "checkpointed",
+                        (System.nanoTime() - start) / 1e6, checkpointed.equals(path));
+            }
+            start = System.nanoTime();
+            List<String> online = new ArrayList<>();
+            OnlineSignalDecoder decoder = new OnlineSignalDecoder(engine, 64, online::add);
+            int maxPending = 0;
+            for (String label : corrupted) {
+                decoder.accept(label);
+                maxPending = Math.max(maxPending, decoder.pending());
+            }
+            decoder.finish(exit);
+            if (report) {
+                System.out.printf("%-16s %10.1f ms   (lag 64, max pending %d, same path: %b)%n", "online",
+                        (System.nanoTime() - start) / 1e6, maxPending, online.equals(path));
+            }
+            start = System.nanoTime();
+            List<String> beam = new BeamSignalDecoder(engine, 32).recover(corrupted, exit);
+            if (report) {
+                System.out.printf("%-16s %10.1f ms   (width 32, same path: %b)%n", "beam",
+                        (System.nanoTime() - start) / 1e6, beam.equals(path));
+            }
+        }
+
+        // how often beams of a few widths disagree with the exact answer on shorter logs
+        List<List<String>> traces = new ArrayList<>();
+        List<String> exits = new ArrayList<>();
+        for (int t = 0; t < 20; t++) {
+            List<String> sample = randomWalk(graph, Math.min(tokens, 200), random);
+            traces.add(corrupt(sample, rooms, random));
+            exits.add(sample.get(sample.size() - 1));
+        }
+        for (int width : new int[]{4, 16, 64}) {
+            System.out.printf("beam %-11d %s%n", width, new BeamSignalDecoder(engine, width).compare(traces, exits));
+        }
+
+        // the original is quadratic in rooms, so it only gets a prefix of the trace
+        int prefix = Math.min(corrupted.size(), 50);
+        long start = System.nanoTime();
+        List<String> path = originalRecover(corrupted.subList(0, prefix), graph, walk.get(prefix - 1));
+        double ms = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-16s %10.1f ms   (%d tokens, %.1f ms/token, path %d rooms)%n", "original", ms, prefix,
+                ms / prefix, path.size());
+    }
+
+    /**
+     * START plus rooms on a square grid with moves right, left, down and up.
+     */
+    static Map<String, List<String>> gridGraph(int rooms) {
+        int side = (int) Math.ceil(Math.sqrt(rooms));
+        Map<String, List<String>> graph = new HashMap<>();
+        graph.put("START", new ArrayList<>(Collections.singletonList("r0")));
+        for (int i = 0; i < rooms; i++) {
+            List<String> next = new ArrayList<>();
+            if (i + 1 < rooms && (i + 1) % side != 0) next.add("r" + (i + 1));
+            if (i % side != 0) next.add("r" + (i - 1));
+            if (i + side < rooms) next.add("r" + (i + side));
+            if (i >= side) next.add("r" + (i - side));
+            graph.put("r" + i, next);
+        }
+        return graph;
+    }
+
+    static List<String> randomWalk(Map<String, List<String>> graph, int length, Random random) {
+        List<String> walk = new ArrayList<>();
+        String room = "START";
+        for (int i = 0; i < length; i++) {
+            List<String> next = graph.get(room);
+            room = next.get(random.nextInt(next.size()));
+            walk.add(room);
+        }
+        return walk;
+    }
+
+    /**
+     * One label in ten is substituted, dropped or duplicated.
+     */
+    static List<String> corrupt(List<String> walk, int rooms, Random random) {
+        List<String> corrupted = new ArrayList<>();
+        for (String room : walk) {
+            int roll = random.nextInt(30);
+            if (roll == 0) corrupted.add("r" + random.nextInt(rooms));
+            else if (roll == 1) continue;
+            else if (roll == 2) {
+                corrupted.add(room);
+                corrupted.add(room);
+            } else corrupted.add(room);
+        }
+        return corrupted;
+    }
+
+    /**
+     * The DP as it was before SignalRecoveryEngine: for every token and room it
+     * scans every other room's neighbour list.
+     */
+    private static List<String> originalRecover(List<String> corrupted, Map<String, List<String>> graph,
+                                                String exitRoom) {
+        int n = corrupted.size();
+        Set<String> rooms = graph.keySet();
+        Map<String, int[]> dp = new HashMap<>();
+        Map<String, String[]> parent = new HashMap<>();
+        Map<String, String[]> moveType = new HashMap<>();
+        for (String room : rooms) {
+            dp.put(room, new int[n + 1]);
+            Arrays.fill(dp.get(room), Integer.MAX_VALUE / 2);
+            parent.put(room, new String[n + 1]);
+            moveType.put(room, new String[n + 1]);
+        }
+        if (dp.containsKey("START")) dp.get("START")[0] = 0;
+
+        for (int i = 0; i <= n; i++) {
+            for (String r : rooms) {
+                if (i > 0) {
+                    int cost = dp.get(r)[i - 1] + 1;
+                    if (cost < dp.get(r)[i]) {
+                        dp.get(r)[i] = cost;
+                        parent.get(r)[i] = r;
+                        moveType.get(r)[i] = "DELETE";
+                    }
+                }
+                for (String p : rooms) {
+                    if (graph.getOrDefault(p, Collections.emptyList()).contains(r)) {
+                        if (i > 0) {
+                            int matchCost = dp.get(p)[i - 1] + (r.equals(corrupted.get(i - 1)) ? 0 : 1);
+                            if (matchCost < dp.get(r)[i]) {
+                                dp.get(r)[i] = matchCost;
+                                parent.get(r)[i] = p;
+                                moveType.get(r)[i] = "MATCH";
+                            }
+                        }
+                        if (!p.equals(r)) {
+                            int insertCost = dp.get(p)[i] + 1;
+                            if (insertCost < dp.get(r)[i]) {
+                                dp.get(r)[i] = insertCost;
+                                parent.get(r)[i] = p;
+                                moveType.get(r)[i] = "INSERT";
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+        String currentRoom = exitRoom;
+        int currentIndex = n;
+        while (currentRoom != null && (currentIndex > 0 || !currentRoom.equals("START"))) {
+            if (!path.contains(currentRoom)) path.add(currentRoom);
+            String move = moveType.get(currentRoom)[currentIndex];
+            String prevRoom = parent.get(currentRoom)[currentIndex];
+            if (move == null) break;
+            if (move.equals("MATCH") || move.equals("DELETE")) currentIndex--;
+            currentRoom = prevRoom;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,139 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * JUnit 4 tests for RoomGraphFile save / memory-mapped load.
+ */
+public class RoomGraphFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMappedGraphMatchesCompiled() throws IOException {
+        Random random = new Random(20);
+        Map<String, List<Edge>> map = CompiledRoomGraphTest.randomGraph(random, 300, 1200, 9);
+        map.get("r0").add(new Edge("K\u00fcche", 2));   // target-only room with a non-ASCII name
+        CompiledRoomGraph graph = CompiledRoomGraph.compile(map);
+
+        Path file = folder.newFile("rooms.bin").toPath();
+        RoomGraphFile.write(graph, file);
+        CompiledRoomGraph loaded = RoomGraphFile.load(file);
+
+        assertEquals(graph.roomCount(), loaded.roomCount());
+        assertEquals(graph.listedRooms(), loaded.listedRooms());
+        assertEquals(graph.edgeCount(), loaded.edgeCount());
+        assertEquals(graph.maxWeight(), loaded.maxWeight());
+        for (int room = 0; room < graph.roomCount(); room++) {
+            assertEquals(graph.name(room), loaded.name(room));
+            assertEquals(room, loaded.id(graph.name(room)));
+            assertEquals(graph.edgeStart(room), loaded.edgeStart(room));
+            assertEquals(graph.edgeEnd(room), loaded.edgeEnd(room));
+        }
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            assertEquals(graph.edgeTarget(e), loaded.edgeTarget(e));
+            assertEquals(graph.edgeWeight(e), loaded.edgeWeight(e));
+        }
+        assertEquals(-1, loaded.id("nowhere"));
+
+        // searches run on the mapped buffers directly
+        List<String> exits = Arrays.asList("r3", "K\u00fcche", "r17");
+        assertSameResult(ExitDistances.compute(graph, exits), ExitDistances.compute(loaded, exits));
+        assertSameResult(ExitDistances.compute(graph.reversed(), exits), ExitDistances.compute(loaded.reversed(), exits));
+    }
+
+    private static void assertSameResult(ExitDistances expected, ExitDistances actual) {
+        for (int room = 0; room < expected.graph().roomCount(); room++) {
+            assertEquals(expected.info(room).exitRoom, actual.info(room).exitRoom);
+            assertEquals(expected.info(room).distance, actual.info(room).distance);
+        }
+    }
+
+    @Test
+    public void testEmptyGraph() throws IOException {
+        Path file = folder.newFile("empty.bin").toPath();
+        RoomGraphFile.write(CompiledRoomGraph.compile(new HashMap<>()), file);
+        CompiledRoomGraph loaded = RoomGraphFile.load(file);
+        assertEquals(0, loaded.roomCount());
+        assertEquals(-1, loaded.id("A"));
+    }
+
+    @Test
+    public void testCorruptFileRejected() throws IOException {
+        Path file = folder.newFile("rooms.bin").toPath();
+        RoomGraphFile.write(CompiledRoomGraph.compile(CompiledRoomGraphTest.randomGraph(new Random(4), 50, 100, 5)),
+                file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 5);
+            raf.write(0x7F);
+        }
+
+        try {
+            RoomGraphFile.load(file);
+            fail("corrupt graph file was accepted");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("checksum"));
+        }
+        assertEquals(50, RoomGraphFile.load(file, false).listedRooms());
+    }
+
+    @Test
+    public void testFullHashIndexEndsLookup() throws IOException {
+        CompiledRoomGraph graph = CompiledRoomGraph.compile(CompiledRoomGraphTest.randomGraph(new Random(5), 10, 20, 5));
+        Path file = folder.newFile("rooms.bin").toPath();
+        RoomGraphFile.write(graph, file);
+        // point every hash slot at room 0, leaving no empty slot to stop a probe
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(24);
+            int slots = raf.readInt();
+            raf.seek(36 + 4L * (graph.roomCount() + 1) * 2 + 8L * graph.edgeCount());
+            for (int slot = 0; slot < slots; slot++) raf.writeInt(1);
+        }
+
+        CompiledRoomGraph loaded = RoomGraphFile.load(file, false);
+        assertEquals(-1, loaded.id("nowhere"));
+        assertEquals(0, loaded.id(graph.name(0)));
+    }
+
+    @Test
+    public void testOutOfRangeArraysRejected() throws IOException {
+        CompiledRoomGraph graph = CompiledRoomGraph.compile(CompiledRoomGraphTest.randomGraph(new Random(6), 10, 20, 5));
+        Path file = folder.newFile("rooms.bin").toPath();
+        long targets = 36 + 4L * (graph.roomCount() + 1);
+        long weights = targets + 4L * graph.edgeCount();
+        long nameOffsets = weights + 4L * graph.edgeCount();
+        long hash = nameOffsets + 4L * (graph.roomCount() + 1);
+        // a decreasing edge offset, an edge target past the rooms, a negative weight, a name
+        // offset past the table and a hash slot naming a room that does not exist
+        long[][] damage = { { 36 + 4 * 3, graph.edgeCount() + 1 }, { targets + 4, graph.roomCount() },
+                { weights, -1 }, { nameOffsets + 4, 1 << 20 }, { hash, graph.roomCount() + 2 } };
+        String[] expected = { "edge offsets", "targets", "weighs", "name offsets", "hash slot" };
+        for (int i = 0; i < damage.length; i++) {
+            RoomGraphFile.write(graph, file);
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.seek(damage[i][0]);
+                raf.writeInt((int) damage[i][1]);
+            }
+            try {
+                RoomGraphFile.load(file, false);
+                fail("out-of-range graph file was accepted: " + expected[i]);
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(expected[i]));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAGraphFile() throws IOException {
+        Path file = folder.newFile("other.bin").toPath();
+        Files.write(file, "MOVE FORWARD MOVE FORWARD MOVE FORWARD MOVE".getBytes());
+        RoomGraphFile.load(file);
+    }
+}
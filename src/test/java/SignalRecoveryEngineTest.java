@@ -0,0 +1,153 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+/**
+ * JUnit 4 tests for SignalRecoveryEngine.
+ */
+public class SignalRecoveryEngineTest {
+
+    @Test
+    public void testInsertionChainFollowsShortestPath() {
+        // START -> A -> B -> C -> D, plus a shortcut A -> D listed after the long way
+        Map<String, List<String>> graph = new LinkedHashMap<>();
+        graph.put("D", Collections.emptyList());
+        graph.put("C", Collections.singletonList("D"));
+        graph.put("B", Collections.singletonList("C"));
+        graph.put("A", Arrays.asList("B", "D"));
+        graph.put("START", Collections.singletonList("A"));
+
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        assertEquals(1, engine.cost(Collections.singletonList("A"), "D"));
+        assertEquals(Arrays.asList("A", "D"), engine.recover(Collections.singletonList("A"), "D"));
+        assertEquals(2, engine.cost(Collections.emptyList(), "D"));
+    }
+
+    @Test
+    public void testUnknownAndUnreachableExit() {
+        Map<String, List<String>> graph = new HashMap<>();
+        graph.put("START", Collections.singletonList("A"));
+        graph.put("A", Collections.emptyList());
+        graph.put("Z", Collections.emptyList());
+
+        SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+        assertEquals(Collections.emptyList(), engine.recover(Arrays.asList("A"), "nowhere"));
+        assertEquals(Collections.singletonList("Z"), engine.recover(Arrays.asList("A"), "Z"));
+        assertEquals(SignalRecoveryEngine.UNREACHABLE, engine.cost(Arrays.asList("A"), "Z"));
+    }
+
+    @Test
+    public void testMatchesReferenceOnRandomGraphs() {
+        Random random = new Random(21);
+        for (int round = 0; round < 200; round++) {
+            int rooms = 2 + random.nextInt(12);
+            Map<String, List<String>> graph = randomGraph(random, rooms, rooms * 2);
+            List<String> corrupted = randomTrace(random, rooms, random.nextInt(12));
+            String exit = "r" + random.nextInt(rooms);
+
+            SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+            int expected = referenceCost(graph, corrupted, exit);
+            assertEquals(expected, engine.cost(corrupted, exit));
+
+            List<String> path = engine.recover(corrupted, exit);
+            if (expected == SignalRecoveryEngine.UNREACHABLE) {
+                assertEquals(Collections.singletonList(exit), path);
+                continue;
+            }
+            // the recovered rooms form a walk from START to the exit
+            assertEquals(exit, path.get(path.size() - 1));
+            String previous = "START";
+            for (String room : path) {
+                assertTrue(previous + " -> " + room, previous.equals(room) || graph.get(previous).contains(room));
+                previous = room;
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpointingReturnsSamePath() {
+        Random random = new Random(22);
+        for (int round = 0; round < 100; round++) {
+            int rooms = 2 + random.nextInt(20);
+            // dense rounds give wide backpointer codes that straddle words
+            Map<String, List<String>> graph = randomGraph(random, rooms, rooms * (1 + random.nextInt(6)));
+            List<String> corrupted = randomTrace(random, rooms, random.nextInt(60));
+            String exit = "r" + random.nextInt(rooms);
+
+            SignalRecoveryEngine engine = new SignalRecoveryEngine(graph);
+            List<String> full = engine.recover(corrupted, exit);
+            assertEquals(full, engine.recover(corrupted, exit, Integer.MAX_VALUE));
+            for (int every = 1; every <= 8; every++) {
+                assertEquals("every " + every, full, engine.recover(corrupted, exit, every));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckpointIntervalMustBePositive() {
+        new SignalRecoveryEngine(randomGraph(new Random(1), 3, 3)).recover(Arrays.asList("r1"), "r1", 0);
+    }
+
+    /**
+     * Random graph over START and r0..r(n-1), all of them keys.
+     */
+    static Map<String, List<String>> randomGraph(Random random, int rooms, int edges) {
+        Map<String, List<String>> graph = new HashMap<>();
+        graph.put("START", new ArrayList<>(Collections.singletonList("r0")));
+        for (int i = 0; i < rooms; i++) graph.put("r" + i, new ArrayList<>());
+        for (int i = 0; i < edges; i++) {
+            graph.get("r" + random.nextInt(rooms)).add("r" + random.nextInt(rooms));
+        }
+        return graph;
+    }
+
+    /**
+     * Trace over the rooms with some labels that are not rooms at all.
+     */
+    static List<String> randomTrace(Random random, int rooms, int length) {
+        List<String> trace = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            trace.add(random.nextInt(5) == 0 ? "noise" : "r" + random.nextInt(rooms));
+        }
+        return trace;
+    }
+
+    /**
+     * The same DP with each layer relaxed to a fixpoint, slow but obviously correct.
+     */
+    static int referenceCost(Map<String, List<String>> graph, List<String> corrupted, String exit) {
+        int inf = Integer.MAX_VALUE;
+        Map<String, Integer> cost = new HashMap<>();
+        for (String room : graph.keySet()) cost.put(room, room.equals("START") ? 0 : inf);
+        for (int i = 0; i <= corrupted.size(); i++) {
+            if (i > 0) {
+                String token = corrupted.get(i - 1);
+                Map<String, Integer> next = new HashMap<>();
+                for (String room : graph.keySet()) next.put(room, cost.get(room) == inf ? inf : cost.get(room) + 1);
+                for (String p : graph.keySet()) {
+                    if (cost.get(p) == inf) continue;
+                    for (String r : graph.get(p)) {
+                        int c = cost.get(p) + (r.equals(token) ? 0 : 1);
+                        if (next.containsKey(r) && c < next.get(r)) next.put(r, c);
+                    }
+                }
+                cost = next;
+            }
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (String p : graph.keySet()) {
+                    if (cost.get(p) == inf) continue;
+                    for (String r : graph.get(p)) {
+                        if (cost.containsKey(r) && cost.get(p) + 1 < cost.get(r)) {
+                            cost.put(r, cost.get(p) + 1);
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return cost.get(exit);
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * JUnit 4 tests for StreamingLzwEncoder.
+ */
+public class StreamingLzwEncoderTest {
+
+    @Test
+    public void testCodesPushedAsSoonAsMatchEnds() {
+        CommandCodebook book = CommandCodebook.wrap(CompressCommandPatternsTest.primitives("MOVE", "FORWARD"));
+        List<Integer> out = new ArrayList<>();
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, out::add);
+
+        encoder.accept("MOVE");
+        assertTrue("nothing to emit while the match may still grow", out.isEmpty());
+        encoder.accept("FORWARD");
+        assertEquals(Arrays.asList(0), out);
+        encoder.accept("MOVE");
+        assertEquals(Arrays.asList(0, 1), out);
+        encoder.accept("FORWARD"); // extends MOVE into MOVE FORWARD
+        assertEquals(Arrays.asList(0, 1), out);
+        assertTrue(encoder.hasPendingMatch());
+
+        encoder.endSequence();
+        assertEquals(Arrays.asList(0, 1, 2), out);
+        assertFalse(encoder.hasPendingMatch());
+    }
+
+    @Test
+    public void testChunkedInputMatchesBatch() {
+        List<List<String>> sequences = Arrays.asList(
+            Arrays.asList("MOVE","FORWARD","MOVE","FORWARD","TURN","LEFT","MOVE","FORWARD","MOVE"),
+            Arrays.asList("TURN","LEFT","TURN","LEFT","TURN")
+        );
+        List<Integer> expected =
+            CommandCodebook.wrap(CompressCommandPatternsTest.primitives("MOVE", "FORWARD", "TURN", "LEFT"))
+                .compress(sequences);
+
+        CommandCodebook book =
+            CommandCodebook.wrap(CompressCommandPatternsTest.primitives("MOVE", "FORWARD", "TURN", "LEFT"));
+        List<Integer> out = new ArrayList<>();
+        List<Integer> boundaries = new ArrayList<>();
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, new CodeSink() {
+            public void code(int code) { out.add(code); }
+            public void endSequence() { boundaries.add(out.size()); }
+        });
+
+        for (List<String> sequence : sequences) {
+            // feed in uneven chunks
+            encoder.accept(sequence.subList(0, 3));
+            for (String token : sequence.subList(3, sequence.size())) encoder.accept(token);
+            encoder.endSequence();
+        }
+
+        assertEquals(expected, out);
+        assertEquals(2, boundaries.size());
+        assertEquals(out.size(), (int) boundaries.get(1));
+    }
+
+    @Test
+    public void testUnknownTokenLeavesSinkAndCodebookUnchanged() {
+        CommandCodebook book = CommandCodebook.wrap(CompressCommandPatternsTest.primitives("MOVE", "FORWARD"));
+        List<Integer> out = new ArrayList<>();
+        StreamingLzwEncoder encoder = new StreamingLzwEncoder(book, out::add);
+
+        encoder.accept("MOVE");
+        encoder.accept("FORWARD");
+        assertEquals(Arrays.asList(0), out);
+        try {
+            encoder.accept("JUMP");
+            fail("unknown token accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(Arrays.asList(0), out);
+        assertEquals(3, book.nextCode());
+
+        // the pending FORWARD match is still there
+        assertTrue(encoder.hasPendingMatch());
+        encoder.endSequence();
+        assertEquals(Arrays.asList(0, 1), out);
+    }
+}